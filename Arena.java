@@ -0,0 +1,174 @@
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Server mode: hosts many game sessions in one JVM without Swing. Each
+// session owns its own simulation and input and is ticked in slices on a
+// shared thread pool, so hundreds of matches spread over all cores. Finished
+// rounds are recorded on one shared Scoreboard.
+// Usage: java -Djava.awt.headless=true Arena [sessions] [level] [threads] [realtime] [scoreDirectory]
+public class Arena implements AutoCloseable {
+    private static final int TICKS_PER_SLICE = 1000; // Ticks a session runs before giving up its thread
+
+    // One player's game. Only the pool thread running its current slice
+    // touches the simulation, and slices of a session never overlap.
+    public static class Session {
+        private final int id;
+        private final String player;
+        private final GameSimulation simulation;
+        private final GameInput input = new GameInput();
+        private long lastNanos; // Real-time sessions: wall-clock time handed to the simulation up to here
+        private volatile boolean ended;
+
+        Session(int id, String player, int level) {
+            this.id = id;
+            this.player = player;
+            this.simulation = new GameSimulation(level);
+            simulation.setController(Bots.followBall());
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public String getPlayer() {
+            return player;
+        }
+
+        public boolean isEnded() {
+            return ended;
+        }
+
+        // Read only after the session has ended
+        public GameSimulation getSimulation() {
+            return simulation;
+        }
+    }
+
+    private final ScheduledExecutorService executor;
+    private final Scoreboard scoreboard;
+    private final boolean realTime;
+    private final AtomicInteger nextId = new AtomicInteger();
+    private final Object lock = new Object();
+    private int activeSessions;
+
+    // realTime paces every session at the game's tick rate; otherwise
+    // sessions run as fast as the pool allows
+    public Arena(Scoreboard scoreboard, int threads, boolean realTime) {
+        this.scoreboard = scoreboard;
+        this.realTime = realTime;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newScheduledThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "arena-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Start a bot-controlled session for the player at the given level
+    public Session start(String player, int level) {
+        Session session = new Session(nextId.getAndIncrement(), player, level);
+        session.input.launch();
+        session.lastNanos = System.nanoTime();
+        synchronized (lock) {
+            activeSessions++;
+        }
+        executor.execute(() -> runSlice(session));
+        return session;
+    }
+
+    private void runSlice(Session session) {
+        GameSimulation simulation = session.simulation;
+        try {
+            if (realTime) {
+                // Step by the time since the last slice, at most a slice's worth at once.
+                // The simulation keeps the part short of a tick and later slices catch
+                // up on the rest, so sessions keep pace with the wall clock.
+                long dtNanos = Math.min(System.nanoTime() - session.lastNanos, TICKS_PER_SLICE * GameSimulation.TICK_NANOS);
+                session.lastNanos += dtNanos;
+                simulation.step(dtNanos, session.input);
+            } else {
+                for (int i = 0; i < TICKS_PER_SLICE && !simulation.isFinished(); i++) {
+                    simulation.tick(session.input);
+                }
+            }
+
+            if (simulation.isFinished() || simulation.getTickCount() >= SimulationRunner.MAX_TICKS_PER_ROUND) {
+                end(session);
+            } else if (realTime) {
+                executor.schedule(() -> runSlice(session), GameSimulation.TICK_NANOS, TimeUnit.NANOSECONDS);
+            } else {
+                executor.execute(() -> runSlice(session)); // Back of the queue, so every session gets a turn
+            }
+        } catch (RejectedExecutionException e) {
+            end(session); // Arena closed
+        } catch (RuntimeException e) {
+            e.printStackTrace(); // One broken session must not take the others down
+            end(session);
+        }
+    }
+
+    private void end(Session session) {
+        GameSimulation simulation = session.simulation;
+        if (simulation.isFinished()) {
+            // Completion time is the simulated play time, not how long the pool took
+            long millis = simulation.getTickCount() * GameSimulation.TICK_NANOS / 1_000_000L;
+            scoreboard.addScore(simulation.getLevel(), session.player, simulation.getScore(), millis);
+        }
+        session.ended = true;
+        synchronized (lock) {
+            activeSessions--;
+            lock.notifyAll();
+        }
+    }
+
+    // Block until every session started so far has ended
+    public void awaitAll() throws InterruptedException {
+        synchronized (lock) {
+            while (activeSessions > 0) {
+                lock.wait();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        System.setProperty("java.awt.headless", "true");
+        int sessions = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        int level = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        boolean realTime = args.length > 3 && Boolean.parseBoolean(args[3]);
+        File directory = new File(args.length > 4 ? args[4] : "arena");
+        directory.mkdirs();
+
+        Scoreboard scoreboard = new Scoreboard(directory);
+        List<Session> started = new ArrayList<>();
+        long start = System.nanoTime();
+        try (Arena arena = new Arena(scoreboard, threads, realTime)) {
+            for (int i = 0; i < sessions; i++) {
+                started.add(arena.start("bot-" + i, level));
+            }
+            arena.awaitAll();
+        }
+        scoreboard.flush();
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+
+        int wins = 0;
+        long totalTicks = 0;
+        for (Session session : started) {
+            if (session.getSimulation().isWin()) {
+                wins++;
+            }
+            totalTicks += session.getSimulation().getTickCount();
+        }
+        System.out.println(sessions + " sessions at level " + level + " on " + threads + " threads in "
+                + String.format("%.2f", seconds) + "s (" + String.format("%.0f", totalTicks / seconds) + " ticks/s)");
+        System.out.println("Wins: " + wins + " | Scores recorded in " + directory.getPath());
+    }
+}
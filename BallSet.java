@@ -0,0 +1,95 @@
+// The balls in play, as parallel arrays with a fixed capacity. Ball 0 is
+// the one GameSimulation.getBall() shows; removing a ball moves the last one
+// into its slot, so when ball 0 is lost another ball takes over.
+public class BallSet {
+    public static final int SIZE = 20; // Width and height of every ball
+
+    final int[] x, y;
+    final int[] velocityX, velocityY;
+    final double[] remainderX, remainderY; // Sub-pixel position kept by SWEPT mode
+    private int count;
+
+    public BallSet(int capacity) {
+        x = new int[capacity];
+        y = new int[capacity];
+        velocityX = new int[capacity];
+        velocityY = new int[capacity];
+        remainderX = new double[capacity];
+        remainderY = new double[capacity];
+    }
+
+    // Returns the new ball's index, or -1 if every slot is taken
+    public int add(int ballX, int ballY, int ballVelocityX, int ballVelocityY) {
+        if (count == x.length) {
+            return -1;
+        }
+        int i = count++;
+        x[i] = ballX;
+        y[i] = ballY;
+        velocityX[i] = ballVelocityX;
+        velocityY[i] = ballVelocityY;
+        remainderX[i] = 0;
+        remainderY[i] = 0;
+        return i;
+    }
+
+    // Copies ball i into a new slot, or returns -1 if every slot is taken
+    public int split(int i, int ballVelocityX, int ballVelocityY) {
+        int copy = add(x[i], y[i], ballVelocityX, ballVelocityY);
+        if (copy >= 0) {
+            remainderX[copy] = remainderX[i];
+            remainderY[copy] = remainderY[i];
+        }
+        return copy;
+    }
+
+    // Swap-remove: the last ball takes slot i. The removed ball's position
+    // stays readable in slot 0 when it was the only one.
+    public void remove(int i) {
+        int last = --count;
+        if (i != last) {
+            x[i] = x[last];
+            y[i] = y[last];
+            velocityX[i] = velocityX[last];
+            velocityY[i] = velocityY[last];
+            remainderX[i] = remainderX[last];
+            remainderY[i] = remainderY[last];
+        }
+    }
+
+    public int size() {
+        return count;
+    }
+
+    // Make this set hold the same balls as other, e.g. for a snapshot
+    public void copyFrom(BallSet other) {
+        count = other.count;
+        System.arraycopy(other.x, 0, x, 0, count);
+        System.arraycopy(other.y, 0, y, 0, count);
+        System.arraycopy(other.velocityX, 0, velocityX, 0, count);
+        System.arraycopy(other.velocityY, 0, velocityY, 0, count);
+        System.arraycopy(other.remainderX, 0, remainderX, 0, count);
+        System.arraycopy(other.remainderY, 0, remainderY, 0, count);
+    }
+
+    public int capacity() {
+        return x.length;
+    }
+
+    public int getX(int i) {
+        return x[i];
+    }
+
+    public int getY(int i) {
+        return y[i];
+    }
+
+    // Pixels per tick
+    public int getVelocityX(int i) {
+        return velocityX[i];
+    }
+
+    public int getVelocityY(int i) {
+        return velocityY[i];
+    }
+}
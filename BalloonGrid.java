@@ -0,0 +1,118 @@
+import java.util.Arrays;
+
+// Uniform grid over the balloon layout. Each balloon id is stored in every
+// cell its box overlaps, so a collision query only looks at the few cells
+// under the ball instead of scanning the whole map. The grid covers the
+// area from (originX, originY); with the origin on a balloon's corner and
+// cells one layout slot big, each balloon of a regular layout fills one cell.
+public class BalloonGrid {
+    private final int originX;
+    private final int originY;
+    private final int cellWidth;
+    private final int cellHeight;
+    private final int columns;
+    private final int rows;
+    private final int[][] cells;     // Balloon ids per cell
+    private final int[] cellCounts;  // Number of used slots in each cell
+
+    public BalloonGrid(int originX, int originY, int worldWidth, int worldHeight, int cellWidth, int cellHeight) {
+        this.originX = originX;
+        this.originY = originY;
+        this.cellWidth = cellWidth;
+        this.cellHeight = cellHeight;
+        this.columns = Math.max(1, (worldWidth + cellWidth - 1) / cellWidth);
+        this.rows = Math.max(1, (worldHeight + cellHeight - 1) / cellHeight);
+        this.cells = new int[columns * rows][];
+        this.cellCounts = new int[columns * rows];
+    }
+
+    public void insert(int id, int x, int y, int width, int height) {
+        int minCol = column(x), maxCol = column(x + width - 1);
+        int minRow = row(y), maxRow = row(y + height - 1);
+        for (int r = minRow; r <= maxRow; r++) {
+            for (int c = minCol; c <= maxCol; c++) {
+                int cell = r * columns + c;
+                int[] ids = cells[cell];
+                if (ids == null) {
+                    ids = new int[2];
+                    cells[cell] = ids;
+                } else if (cellCounts[cell] == ids.length) {
+                    ids = Arrays.copyOf(ids, ids.length * 2);
+                    cells[cell] = ids;
+                }
+                ids[cellCounts[cell]++] = id;
+            }
+        }
+    }
+
+    // Remove a balloon from the cells it was inserted into. Cells only hold a
+    // handful of ids, so the swap-remove inside a cell is effectively O(1).
+    public void remove(int id, int x, int y, int width, int height) {
+        int minCol = column(x), maxCol = column(x + width - 1);
+        int minRow = row(y), maxRow = row(y + height - 1);
+        for (int r = minRow; r <= maxRow; r++) {
+            for (int c = minCol; c <= maxCol; c++) {
+                int cell = r * columns + c;
+                int[] ids = cells[cell];
+                for (int k = 0; k < cellCounts[cell]; k++) {
+                    if (ids[k] == id) {
+                        ids[k] = ids[--cellCounts[cell]];
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    // Whether the box lies inside the area the grid covers
+    public boolean covers(int x, int y, int width, int height) {
+        return x >= originX && y >= originY
+                && x + width <= getRight() && y + height <= getBottom();
+    }
+
+    // Whether the box overlaps the area the grid covers at all
+    public boolean overlaps(int x, int y, int width, int height) {
+        return x < getRight() && originX < x + width && y < getBottom() && originY < y + height;
+    }
+
+    public int getLeft() {
+        return originX;
+    }
+
+    public int getTop() {
+        return originY;
+    }
+
+    public int getRight() {
+        return originX + columns * cellWidth;
+    }
+
+    public int getBottom() {
+        return originY + rows * cellHeight;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    // Cell coordinates are clamped so the part of a query outside the grid ends up in the edge cells
+    public int column(int x) {
+        return Math.min(columns - 1, Math.max(0, Math.floorDiv(x - originX, cellWidth)));
+    }
+
+    public int row(int y) {
+        return Math.min(rows - 1, Math.max(0, Math.floorDiv(y - originY, cellHeight)));
+    }
+
+    public int cellSize(int column, int row) {
+        return cellCounts[row * columns + column];
+    }
+
+    public int cellBalloon(int column, int row, int slot) {
+        return cells[row * columns + column][slot];
+    }
+}
@@ -0,0 +1,55 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.HashMap;
+import java.util.Map;
+
+// Pre-rendered balloon images, one per colour and size. Drawing a balloon is
+// then a single image blit instead of rasterizing an oval and a string line.
+public class BalloonSprites {
+    private static final int STRING_LENGTH = 10; // Matches the line drawn under each balloon
+    private static final Map<String, BufferedImage> cache = new HashMap<>();
+
+    // Height of a sprite including the string
+    public static int spriteHeight(int balloonHeight) {
+        return balloonHeight + STRING_LENGTH + 1;
+    }
+
+    public static int spriteWidth(int balloonWidth) {
+        return balloonWidth + 1;
+    }
+
+    public static synchronized BufferedImage get(Color color, int width, int height) {
+        String key = color.getRGB() + ":" + width + "x" + height;
+        BufferedImage sprite = cache.get(key);
+        if (sprite == null) {
+            sprite = render(color, width, height);
+            cache.put(key, sprite);
+        }
+        return sprite;
+    }
+
+    // Image in the screen's pixel format when there is a screen, so Java2D can
+    // keep it in video memory. transparency is a java.awt.Transparency constant.
+    public static BufferedImage createImage(int width, int height, int transparency) {
+        if (GraphicsEnvironment.isHeadless()) {
+            return new BufferedImage(width, height, transparency == Transparency.OPAQUE
+                    ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB);
+        }
+        return GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice()
+                .getDefaultConfiguration().createCompatibleImage(width, height, transparency);
+    }
+
+    private static BufferedImage render(Color color, int width, int height) {
+        BufferedImage sprite = createImage(spriteWidth(width), spriteHeight(height), Transparency.TRANSLUCENT);
+        Graphics2D g = sprite.createGraphics();
+        try {
+            g.setColor(color);
+            g.fillOval(0, 0, width, height);
+            g.setColor(Color.WHITE);
+            g.drawLine(width / 2, height, width / 2, height + STRING_LENGTH);
+        } finally {
+            g.dispose();
+        }
+        return sprite;
+    }
+}
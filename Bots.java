@@ -0,0 +1,74 @@
+import java.util.SplittableRandom;
+
+// Bot players for headless rounds, the arena and difficulty tuning
+public class Bots {
+    // Keeps the paddle under the ball; never misses at the built-in speeds
+    public static PaddleController followBall() {
+        return SimulationRunner::followBall;
+    }
+
+    // Moves to where the ball will come down, working out its bounces off the side walls
+    public static PaddleController predicting() {
+        return (simulation, input) -> moveTowards(simulation, input, landingX(simulation));
+    }
+
+    // A player with human limits: it only looks at the ball every reactionTicks
+    // ticks and aims up to about aimError pixels off. Seeded, so a round
+    // plays the same way each time.
+    public static PaddleController human(long seed, int reactionTicks, int aimError) {
+        if (reactionTicks < 1) {
+            throw new IllegalArgumentException("Bot reaction time must be at least 1 tick, not " + reactionTicks);
+        }
+        SplittableRandom random = new SplittableRandom(seed);
+        int[] target = {GameSimulation.SCREEN_WIDTH / 2};
+        return (simulation, input) -> {
+            if (simulation.getTickCount() % reactionTicks == 0) {
+                target[0] = landingX(simulation) + (int) (random.nextGaussian() * aimError);
+            }
+            moveTowards(simulation, input, target[0]);
+        };
+    }
+
+    // By command-line name: follow, predict or human[:reactionTicks:aimError]
+    public static PaddleController byName(String name, long seed) {
+        String[] parts = name.split(":");
+        switch (parts[0]) {
+            case "follow":
+                return followBall();
+            case "predict":
+                return predicting();
+            case "human":
+                int reactionTicks = parts.length > 1 ? Integer.parseInt(parts[1]) : 12;
+                return human(seed, reactionTicks, parts.length > 2 ? Integer.parseInt(parts[2]) : 45); // Checks reactionTicks
+            default:
+                throw new IllegalArgumentException("Unknown bot " + name + " (follow, predict or human[:reactionTicks:aimError])");
+        }
+    }
+
+    // Centre x where ball 0 will reach the paddle, ignoring balloons; while
+    // it is going up, where it is now
+    static int landingX(GameSimulation simulation) {
+        BallSet balls = simulation.getBalls();
+        int x = balls.getX(0);
+        int velocityY = balls.getVelocityY(0);
+        if (velocityY > 0) {
+            int ticks = (simulation.getPaddle().y - BallSet.SIZE - balls.getY(0)) / velocityY;
+            // Unfold the side-wall bounces: the ball's x runs back and forth over [0, range]
+            int range = GameSimulation.SCREEN_WIDTH - BallSet.SIZE;
+            x = Math.floorMod(x + balls.getVelocityX(0) * Math.max(0, ticks), 2 * range);
+            if (x > range) {
+                x = 2 * range - x;
+            }
+        }
+        return x + BallSet.SIZE / 2;
+    }
+
+    private static void moveTowards(GameSimulation simulation, GameInput input, int targetX) {
+        int paddleCenter = simulation.getPaddle().x + simulation.getPaddle().width / 2;
+        if (targetX < paddleCenter - GameSimulation.PADDLE_STEP) {
+            input.moveLeft();
+        } else if (targetX > paddleCenter + GameSimulation.PADDLE_STEP) {
+            input.moveRight();
+        }
+    }
+}
@@ -0,0 +1,214 @@
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+// Sweeps level difficulty: bots play many rounds of every combination of
+// ballSpeed, paddleWidth and balloonRows, in parallel on a fork-join pool
+// over all cores. Each round has its own seed, which drives the bot's
+// mistakes (and the layout on endless levels), so the rounds of one setting
+// differ the way real players' rounds do.
+//
+// Usage: java -Djava.awt.headless=true DifficultyTuner [key=value ...]
+//   level=1                 level the other settings (type, columns, power-ups) come from
+//   ballSpeed=3..6          values to try: a..b is a range, a,b,c a list
+//   paddleWidth=80,100,120
+//   rows=3..5
+//   rounds=1000             rounds per combination
+//   bot=human:12:45         follow, predict or human[:reactionTicks:aimError]
+//   mode=discrete           or swept
+//   target=0.5              win rate to aim for; the closest settings are listed at the end
+//   threads=<cores>
+//   seed=1
+//   csv=<file>              also write the results as CSV
+public class DifficultyTuner {
+    private static final int BATCH = 32; // Rounds one fork-join task plays without splitting further
+
+    // Totals for one combination; tasks merge theirs as they join
+    static class Stats {
+        long rounds, wins, timeouts, score, ticks;
+        double cleared; // Sum of the fraction of balloons popped
+
+        void add(GameSimulation simulation) {
+            rounds++;
+            if (simulation.isWin()) {
+                wins++;
+            } else if (!simulation.isFinished()) {
+                timeouts++;
+            }
+            score += simulation.getScore();
+            ticks += simulation.getTickCount();
+            MapGenerator map = simulation.getMapGenerator();
+            cleared += 1 - (double) map.getRemainingCount() / Math.max(1, map.getBalloonCount());
+        }
+
+        Stats merge(Stats other) {
+            rounds += other.rounds;
+            wins += other.wins;
+            timeouts += other.timeouts;
+            score += other.score;
+            ticks += other.ticks;
+            cleared += other.cleared;
+            return this;
+        }
+
+        double winRate() {
+            return (double) wins / rounds;
+        }
+    }
+
+    // Rounds [from, to) of one combination
+    static class Rounds extends RecursiveTask<Stats> {
+        private final LevelDefinition level;
+        private final Map<String, String> options;
+        private final long seed;
+        private final int from, to;
+
+        Rounds(LevelDefinition level, Map<String, String> options, long seed, int from, int to) {
+            this.level = level;
+            this.options = options;
+            this.seed = seed;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Stats compute() {
+            if (to - from > BATCH) {
+                int middle = (from + to) >>> 1;
+                Rounds right = new Rounds(level, options, seed, middle, to);
+                right.fork();
+                Stats left = new Rounds(level, options, seed, from, middle).compute();
+                return left.merge(right.join());
+            }
+            Stats stats = new Stats();
+            GameSimulation.CollisionMode mode = GameSimulation.CollisionMode.valueOf(options.get("mode").toUpperCase());
+            for (int round = from; round < to; round++) {
+                long roundSeed = new SplittableRandom(seed + round).nextLong();
+                GameSimulation simulation = new GameSimulation(level, roundSeed);
+                simulation.setCollisionMode(mode);
+                SimulationRunner.play(simulation, Bots.byName(options.get("bot"), roundSeed));
+                stats.add(simulation);
+            }
+            return stats;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        System.setProperty("java.awt.headless", "true");
+        Map<String, String> options = new HashMap<>();
+        options.put("level", "1");
+        options.put("rounds", "1000");
+        options.put("bot", "human:12:45");
+        options.put("mode", "discrete");
+        options.put("target", "0.5");
+        options.put("threads", String.valueOf(Runtime.getRuntime().availableProcessors()));
+        options.put("seed", "1");
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (equals < 0) {
+                System.err.println("Expected key=value, got " + arg);
+                System.exit(2);
+            }
+            options.put(arg.substring(0, equals), arg.substring(equals + 1));
+        }
+
+        LevelDefinition base = GameSimulation.definition(Integer.parseInt(options.get("level")));
+        int[] ballSpeeds = values(options.getOrDefault("ballSpeed", String.valueOf(base.getBallSpeed())));
+        int[] paddleWidths = values(options.getOrDefault("paddleWidth", String.valueOf(base.getPaddleWidth())));
+        int[] rows = values(options.getOrDefault("rows", String.valueOf(base.getRows())));
+        int rounds = Integer.parseInt(options.get("rounds"));
+        long seed = Long.parseLong(options.get("seed"));
+
+        List<LevelDefinition> settings = new ArrayList<>();
+        for (int ballSpeed : ballSpeeds) {
+            for (int paddleWidth : paddleWidths) {
+                for (int rowCount : rows) {
+                    settings.add(new LevelDefinition(base.getId(), base.getName(), base.getType(), ballSpeed, paddleWidth,
+                            rowCount, base.getColumns(), base.getPowerUpChance()));
+                }
+            }
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(Integer.parseInt(options.get("threads")));
+        System.out.println(settings.size() + " settings x " + rounds + " rounds on " + pool.getParallelism()
+                + " threads, bot " + options.get("bot"));
+        System.out.println("ballSpeed paddleWidth rows |   win%  timeout%  avg score  avg time  cleared%");
+        long start = System.nanoTime();
+        List<ForkJoinTask<Stats>> tasks = new ArrayList<>();
+        for (int i = 0; i < settings.size(); i++) {
+            tasks.add(pool.submit(new Rounds(settings.get(i), options, seed + (long) i * rounds, 0, rounds)));
+        }
+        List<Stats> results = new ArrayList<>();
+        long totalTicks = 0;
+        for (int i = 0; i < settings.size(); i++) {
+            Stats stats = tasks.get(i).join(); // In order, so rows print as their combination finishes
+            results.add(stats);
+            totalTicks += stats.ticks;
+            System.out.println(describe(settings.get(i), stats));
+        }
+        pool.shutdown();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d rounds in %.1fs (%.0f rounds/s, %.1fM ticks/s)%n", (long) settings.size() * rounds, seconds,
+                settings.size() * rounds / seconds, totalTicks / seconds / 1e6);
+
+        // Closest to the target win rate first
+        double target = Double.parseDouble(options.get("target"));
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < settings.size(); i++) {
+            order.add(i);
+        }
+        order.sort((a, b) -> Double.compare(Math.abs(results.get(a).winRate() - target), Math.abs(results.get(b).winRate() - target)));
+        System.out.println("Closest to " + Math.round(target * 100) + "% wins:");
+        for (int i = 0; i < Math.min(5, order.size()); i++) {
+            System.out.println(describe(settings.get(order.get(i)), results.get(order.get(i))));
+        }
+
+        if (options.containsKey("csv")) {
+            try (PrintWriter csv = new PrintWriter(new FileWriter(options.get("csv")))) {
+                csv.println("ballSpeed,paddleWidth,rows,rounds,wins,timeouts,avgScore,avgTicks,cleared");
+                for (int i = 0; i < settings.size(); i++) {
+                    LevelDefinition setting = settings.get(i);
+                    Stats stats = results.get(i);
+                    csv.printf("%d,%d,%d,%d,%d,%d,%.3f,%.1f,%.4f%n", setting.getBallSpeed(), setting.getPaddleWidth(),
+                            setting.getRows(), stats.rounds, stats.wins, stats.timeouts, (double) stats.score / stats.rounds,
+                            (double) stats.ticks / stats.rounds, stats.cleared / stats.rounds);
+                }
+            }
+        }
+    }
+
+    private static String describe(LevelDefinition setting, Stats stats) {
+        double seconds = (double) stats.ticks / stats.rounds * GameSimulation.TICK_NANOS / 1e9;
+        return String.format("%9d %11d %4d | %6.1f %9.1f %10.1f %8.1fs %9.1f", setting.getBallSpeed(), setting.getPaddleWidth(),
+                setting.getRows(), stats.winRate() * 100, 100.0 * stats.timeouts / stats.rounds,
+                (double) stats.score / stats.rounds, seconds, stats.cleared / stats.rounds * 100);
+    }
+
+    // "3..6" or "80,100,120"
+    private static int[] values(String spec) {
+        int range = spec.indexOf("..");
+        if (range >= 0) {
+            int low = Integer.parseInt(spec.substring(0, range).trim());
+            int high = Integer.parseInt(spec.substring(range + 2).trim());
+            int[] values = new int[Math.max(0, high - low + 1)];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = low + i;
+            }
+            return values;
+        }
+        String[] parts = spec.split(",");
+        int[] values = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            values[i] = Integer.parseInt(parts[i].trim());
+        }
+        return values;
+    }
+}
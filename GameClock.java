@@ -0,0 +1,62 @@
+import java.util.concurrent.TimeUnit;
+
+// Play time of a round, measured with System.nanoTime(), so changes to the
+// wall clock (NTP, daylight saving, the user) don't affect it. Time only
+// advances in tick() calls, made once per frame while the game is running,
+// and never by more than maxStepNanos at once. While paused (dialogs, the end
+// of a round) or stalled the clock stands still.
+//
+// Not thread-safe: GamePlay calls everything under its stateLock.
+public class GameClock {
+    private final long maxStepNanos;
+    private boolean running;
+    private long lastNanos;    // nanoTime() at the last tick() or start()
+    private long elapsedNanos; // Play time counted so far
+
+    public GameClock(long maxStepNanos) {
+        this.maxStepNanos = maxStepNanos;
+    }
+
+    public void start() {
+        if (!running) {
+            running = true;
+            lastNanos = System.nanoTime();
+        }
+    }
+
+    // Stops the clock; the time since the last tick() is not counted
+    public void pause() {
+        running = false;
+    }
+
+    // Count the time since the last call and return it, for stepping the
+    // simulation by exactly the time the clock advanced. 0 while paused.
+    public long tick() {
+        if (!running) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        long step = Math.min(now - lastNanos, maxStepNanos);
+        lastNanos = now;
+        elapsedNanos += step;
+        return step;
+    }
+
+    // Set the play time, e.g. to zero for a new round or to a snapshot's time when resuming
+    public void reset(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+        lastNanos = System.nanoTime();
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public long getElapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+    }
+}
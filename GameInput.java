@@ -0,0 +1,32 @@
+// Input collected between simulation ticks. GamePlay fills it from key events
+// and GameSimulation consumes it at the start of the next tick.
+public class GameInput {
+    private int paddleSteps; // Net paddle moves requested (negative = left)
+    private boolean launch;
+
+    public void moveLeft() {
+        paddleSteps--;
+    }
+
+    public void moveRight() {
+        paddleSteps++;
+    }
+
+    public void launch() {
+        launch = true;
+    }
+
+    public int getPaddleSteps() {
+        return paddleSteps;
+    }
+
+    public boolean isLaunch() {
+        return launch;
+    }
+
+    // Called by the simulation once the input has been applied
+    public void clear() {
+        paddleSteps = 0;
+        launch = false;
+    }
+}
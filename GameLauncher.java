@@ -11,6 +11,9 @@ public class GameLauncher extends JFrame {
         setLocationRelativeTo(null);
         setLayout(new BorderLayout());
 
+        // Decode the images for this screen and the login screen in the background
+        ImageAssets.preload("/logo.png", "/enter.png");
+
         // Add image as background
         try {
             setContentPane(new BackgroundPanel("/logo.png")); // Load image from resources
@@ -53,22 +56,29 @@ public class GameLauncher extends JFrame {
 
     // Custom Panel to display image as background
     class BackgroundPanel extends JPanel {
-        private Image backgroundImage;
+        private final String imagePath;
+        private final Color placeholderBackground = new Color(20, 24, 48);
+        private final Font placeholderFont = new Font("Comic Sans MS", Font.BOLD, 48);
 
         public BackgroundPanel(String imagePath) {
-            try {
-                backgroundImage = new ImageIcon(getClass().getResource(imagePath)).getImage();
-            } catch (Exception e) {
-                System.out.println("Error loading background image: " + e.getMessage());
-            }
+            this.imagePath = imagePath;
+            ImageAssets.load(imagePath);
         }
 
         @Override
         protected void paintComponent(Graphics g) {
             super.paintComponent(g);
-            if (backgroundImage != null) {
-                g.drawImage(backgroundImage, 0, 0, getWidth(), getHeight(), this);
+            if (!ImageAssets.drawScaled(g, imagePath, getWidth(), getHeight(), this)) {
+                // Placeholder until the image is decoded, so the window never waits for it
+                g.setColor(placeholderBackground);
+                g.fillRect(0, 0, getWidth(), getHeight());
+                g.setColor(Color.YELLOW);
+                g.setFont(placeholderFont);
+                FontMetrics metrics = g.getFontMetrics();
+                String title = "Bounce & Burst";
+                g.drawString(title, (getWidth() - metrics.stringWidth(title)) / 2, getHeight() / 3);
             }
+            Startup.firstFrame(GameLauncher.this);
         }
     }
 
@@ -77,11 +87,11 @@ public class GameLauncher extends JFrame {
         try {
             System.out.println("Game starting for: " + username + " at Level: " + level);
 
-            JFrame gameFrame = new JFrame("Bounce & Burst Game - Level " + level);
+            JFrame gameFrame = new JFrame("Bounce & Burst Game - " + LevelPack.getDefault().getTitle(level));
             gameFrame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
             gameFrame.setSize(600, 600);
             gameFrame.setLocationRelativeTo(null);
-            gameFrame.add(new GamePlay(username, new Scoreboard(), level)); // Assuming GamePlay and Scoreboard are implemented
+            gameFrame.add(new GamePlay(username, Startup.getScoreboard(), level)); // Score files are usually opened by the warm-up already
             gameFrame.setVisible(true);
 
             this.dispose();
@@ -97,37 +107,27 @@ public class GameLauncher extends JFrame {
         levelFrame.setSize(500, 500);
         levelFrame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         levelFrame.setLocationRelativeTo(null);
-        levelFrame.setLayout(new GridLayout(4, 1));
+        levelFrame.setLayout(new BorderLayout());
 
         JLabel instructionLabel = new JLabel("Select a Level:", SwingConstants.CENTER);
         instructionLabel.setFont(new Font("Arial", Font.BOLD, 18));
-        levelFrame.add(instructionLabel);
+        levelFrame.add(instructionLabel, BorderLayout.NORTH);
 
-        JButton level1Button = new JButton("Level 1");
-        JButton level2Button = new JButton("Level 2");
-        JButton level3Button = new JButton("Level 3");
-
-        level1Button.addActionListener(e -> {
-            startGame(username, 1);
-            levelFrame.dispose();
-        });
-        level2Button.addActionListener(e -> {
-            startGame(username, 2);
-            levelFrame.dispose();
-        });
-        level3Button.addActionListener(e -> {
-            startGame(username, 3);
+        // Levels come from the level pack (levels.txt), so the list grows with it
+        LevelList levelList = new LevelList(LevelPack.getDefault(), level -> {
+            startGame(username, level);
             levelFrame.dispose();
         });
+        levelFrame.add(new JScrollPane(levelList), BorderLayout.CENTER);
 
-        levelFrame.add(level1Button);
-        levelFrame.add(level2Button);
-        levelFrame.add(level3Button);
+        JButton playButton = new JButton("Play");
+        playButton.addActionListener(e -> levelList.startSelected());
+        levelFrame.add(playButton, BorderLayout.SOUTH);
 
         levelFrame.setVisible(true);
     }
 
     public static void main(String[] args) {
-        new GameLauncher();
+        Startup.launch();
     }
 }
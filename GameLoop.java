@@ -0,0 +1,120 @@
+import java.awt.*;
+import java.awt.image.BufferStrategy;
+
+// Active rendering: a dedicated thread updates the game and draws it straight
+// into a Canvas BufferStrategy, paced with System.nanoTime(), instead of
+// asking Swing to repaint() from a javax.swing.Timer.
+public class GameLoop implements Runnable {
+
+    public interface Frame {
+        // Advance the game by the real time since the previous frame
+        void update(long frameNanos);
+
+        void render(Graphics2D g, int width, int height);
+    }
+
+    private static final long SPIN_NANOS = 1_000_000L; // Busy-wait the last millisecond for accurate pacing
+
+    private final Canvas canvas;
+    private final Frame frame;
+    private final long targetFrameNanos; // 0 = uncapped
+    private volatile boolean running;
+    private Thread thread;
+
+    // targetFps <= 0 renders as fast as possible
+    public GameLoop(Canvas canvas, Frame frame, int targetFps) {
+        this.canvas = canvas;
+        this.frame = frame;
+        this.targetFrameNanos = targetFps > 0 ? 1_000_000_000L / targetFps : 0;
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        thread = new Thread(this, "game-loop");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public synchronized void stop() {
+        running = false;
+        if (thread != null && thread != Thread.currentThread()) {
+            thread.interrupt();
+            try {
+                thread.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        thread = null;
+    }
+
+    @Override
+    public void run() {
+        long previous = System.nanoTime();
+        long nextFrame = previous + targetFrameNanos;
+
+        while (running) {
+            long now = System.nanoTime();
+            long elapsed = now - previous;
+            previous = now;
+
+            frame.update(elapsed); // Frame time and FPS are measured by GameMetrics.recordFrame
+            render();
+
+            if (targetFrameNanos > 0) {
+                waitUntil(nextFrame);
+                nextFrame += targetFrameNanos;
+                // If we fell more than a frame behind, don't try to catch up with a burst
+                if (System.nanoTime() - nextFrame > targetFrameNanos) {
+                    nextFrame = System.nanoTime() + targetFrameNanos;
+                }
+            }
+        }
+    }
+
+    private void render() {
+        if (!canvas.isDisplayable() || canvas.getWidth() <= 0 || canvas.getHeight() <= 0) {
+            return;
+        }
+        BufferStrategy strategy = canvas.getBufferStrategy();
+        if (strategy == null) {
+            canvas.createBufferStrategy(2);
+            return;
+        }
+
+        // Standard BufferStrategy loop: redraw if the buffer was lost or restored meanwhile
+        do {
+            do {
+                Graphics2D g = (Graphics2D) strategy.getDrawGraphics();
+                try {
+                    frame.render(g, canvas.getWidth(), canvas.getHeight());
+                } finally {
+                    g.dispose();
+                }
+            } while (strategy.contentsRestored());
+            strategy.show();
+        } while (strategy.contentsLost());
+
+        // Flush the window system's queue so the frame appears now (helps on Linux)
+        Toolkit.getDefaultToolkit().sync();
+    }
+
+    // Sleep for most of the wait, then spin for the rest
+    private void waitUntil(long deadline) {
+        long remaining;
+        while (running && (remaining = deadline - System.nanoTime()) > 0) {
+            if (remaining > SPIN_NANOS) {
+                try {
+                    Thread.sleep((remaining - SPIN_NANOS) / 1_000_000L, (int) ((remaining - SPIN_NANOS) % 1_000_000L));
+                } catch (InterruptedException e) {
+                    return;
+                }
+            } else {
+                Thread.onSpinWait();
+            }
+        }
+    }
+}
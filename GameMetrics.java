@@ -0,0 +1,77 @@
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import javax.management.*;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+
+// Process-wide timings of the game loop. Each histogram is published over
+// JMX as bounceandburst:type=Latency,name=<name> (e.g. in JConsole or
+// VisualVM) once register() has been called; GamePlay does that on start.
+public class GameMetrics {
+    public static final LatencyHistogram FRAME = new LatencyHistogram("frame");          // Time between frames
+    public static final LatencyHistogram TICK = new LatencyHistogram("tick");            // Simulation update per frame
+    public static final LatencyHistogram MOVE_BALL = new LatencyHistogram("moveBall");
+    public static final LatencyHistogram COLLISION = new LatencyHistogram("checkBalloonCollision");
+    public static final LatencyHistogram SWEEP = new LatencyHistogram("sweepBall");
+    public static final LatencyHistogram PAINT = new LatencyHistogram("paint");
+    public static final LatencyHistogram GC_PAUSE = new LatencyHistogram("gcPause");
+
+    private static volatile double fps;
+    private static volatile long lastGcPauseNanos;
+    private static boolean registered;
+
+    private GameMetrics() {
+    }
+
+    // Record the time since the previous frame and update the smoothed FPS
+    public static void recordFrame(long frameNanos) {
+        FRAME.record(frameNanos);
+        if (frameNanos > 0) {
+            double current = fps;
+            fps = current == 0 ? 1e9 / frameNanos : current * 0.9 + (1e9 / frameNanos) * 0.1;
+        }
+    }
+
+    public static double getFps() {
+        return fps;
+    }
+
+    public static long getLastGcPauseNanos() {
+        return lastGcPauseNanos;
+    }
+
+    // Publish the histograms over JMX and start timing GC pauses. Safe to call more than once.
+    public static synchronized void register() {
+        if (registered) {
+            return;
+        }
+        registered = true;
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (LatencyHistogram histogram : new LatencyHistogram[]{FRAME, TICK, MOVE_BALL, COLLISION, SWEEP, PAINT, GC_PAUSE}) {
+            try {
+                server.registerMBean(histogram, new ObjectName("bounceandburst:type=Latency,name=" + histogram.getName()));
+            } catch (JMException e) {
+                e.printStackTrace();
+            }
+        }
+
+        // Collectors report each collection after it ends; the listener runs on a JMX thread
+        NotificationListener listener = (notification, handback) -> {
+            if (GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+                GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+                if (info.getGcName().contains("Concurrent") || info.getGcName().contains("Cycles")) {
+                    return; // Background collector work, not a pause
+                }
+                long pauseNanos = info.getGcInfo().getDuration() * 1_000_000L;
+                GC_PAUSE.record(pauseNanos);
+                lastGcPauseNanos = pauseNanos;
+            }
+        };
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (collector instanceof NotificationEmitter) {
+                ((NotificationEmitter) collector).addNotificationListener(listener, null, null);
+            }
+        }
+    }
+}
@@ -0,0 +1,572 @@
+import java.awt.Color;
+import java.awt.Rectangle;
+import java.util.SplittableRandom;
+
+// Headless game state and physics for one round. It has no Swing dependency,
+// so it can be ticked from GamePlay's timer or from a test/CI loop as fast as
+// the CPU allows (run with -Djava.awt.headless=true).
+public class GameSimulation {
+    // DISCRETE moves the ball and then tests for overlap (the original rules).
+    // SWEPT computes the exact time of impact, so fast balls can't tunnel.
+    public enum CollisionMode { DISCRETE, SWEPT }
+
+    // Told about events a view may want to show; called on the ticking thread
+    public interface Listener {
+        void balloonPopped(int x, int y, Color color); // Centre of the balloon
+    }
+
+    public static final int SCREEN_WIDTH = 600;
+    public static final int SCREEN_HEIGHT = 600;
+    public static final long TICK_NANOS = 15_000_000L; // One physics tick, same as the old 15ms Swing timer
+    public static final int PADDLE_STEP = 15;
+    private static final int MAX_CONTACTS_PER_TICK = 8; // Bounces resolved in one swept tick
+    static final int MAX_BALLS = 8;
+    static final int MAX_POWER_UPS = 8;
+    private static final int POWER_UP_FALL_SPEED = 2;
+    private static final int WIDE_PADDLE_TICKS = 600; // About 9 seconds
+
+    private final int level;
+    private final long seed; // Map seed, recorded with replays so a round can be rebuilt exactly
+    private final Rectangle paddle, ball; // ball shows ball 0 of balls
+    private final BallSet balls = new BallSet(MAX_BALLS);
+    private final PowerUpSet powerUps = new PowerUpSet(MAX_POWER_UPS);
+    private final MapGenerator mapGenerator;
+    private final ProceduralMap proceduralMap; // Streams new chunks in endless mode, otherwise null
+
+    // Level-specific variables
+    private int ballSpeed;
+    private int paddleWidth;
+    private int balloonRows;
+    private final int powerUpChance; // Percent of pops that drop a power-up
+    private SplittableRandom powerUpRandom; // Seeded, so replays drop the same power-ups
+    private long powerUpRolls; // Drops rolled so far, so a restore can wind the random to the same place
+
+    private boolean isBallLaunched = false;
+    private boolean gameOver = false;
+    private boolean win = false;
+    private int score = 0;
+    private int widePaddleTicks; // Ticks left on the WIDE_PADDLE power-up
+
+    private CollisionMode collisionMode = CollisionMode.DISCRETE;
+    private final SweptCollision.Hit hit = new SweptCollision.Hit();
+
+    private long accumulator; // Unsimulated time carried over between step() calls
+    private long tickCount;
+    private InputRecording recording; // Receives every input applied, when recording
+    private boolean timed; // Record physics timings in GameMetrics
+    private Listener listener;
+    private PaddleController controller; // Adds bot input before each tick, if set
+
+    public GameSimulation(int level) {
+        this(level, 0);
+    }
+
+    // The seed only matters for endless levels and power-up drops; grid layouts are fixed
+    public GameSimulation(int level, long seed) {
+        this(definition(level), seed);
+    }
+
+    // Play any level parameters, e.g. a candidate difficulty from DifficultyTuner
+    public GameSimulation(LevelDefinition definition, long seed) {
+        this.level = definition.getId();
+        this.seed = seed;
+
+        ballSpeed = definition.getBallSpeed();
+        paddleWidth = definition.getPaddleWidth();
+        balloonRows = definition.getRows();
+        powerUpChance = definition.getPowerUpChance();
+        powerUpRandom = new SplittableRandom(~seed);
+
+        // Initialize paddle and ball, which starts going up and to the right
+        paddle = new Rectangle(SCREEN_WIDTH / 2 - paddleWidth / 2, SCREEN_HEIGHT - 50, paddleWidth, 10);
+        ball = new Rectangle(SCREEN_WIDTH / 2 - 10, paddle.y - 20, BallSet.SIZE, BallSet.SIZE);
+        balls.add(ball.x, ball.y, ballSpeed, -ballSpeed);
+
+        // Initialize balloons
+        if (definition.isEndless()) {
+            mapGenerator = new MapGenerator();
+            proceduralMap = new ProceduralMap(seed, Math.max(1, balloonRows / 2), definition.getColumns());
+            proceduralMap.start(mapGenerator);
+        } else {
+            mapGenerator = new MapGenerator(balloonRows, definition.getColumns()); // Rows and columns of balloons
+            proceduralMap = null;
+        }
+    }
+
+    // Level-specific settings come from the level pack. Ids the pack doesn't
+    // have get easy settings, like the old default case.
+    static LevelDefinition definition(int level) {
+        LevelDefinition definition = LevelPack.getDefault().get(level);
+        return definition != null ? definition
+                : new LevelDefinition(level, "Level " + level, LevelDefinition.Type.GRID, 3, 120, 3, 7, 0);
+    }
+
+    // Advance the simulation by dtNanos of real (or simulated) time. Physics
+    // always runs in fixed TICK_NANOS steps; leftover time is kept for the
+    // next call. Returns the number of ticks that were run.
+    public int step(long dtNanos, GameInput input) {
+        accumulator += dtNanos;
+        int ticks = 0;
+        while (accumulator >= TICK_NANOS && !isFinished()) {
+            accumulator -= TICK_NANOS;
+            tick(input);
+            ticks++;
+        }
+        if (isFinished()) {
+            accumulator = 0;
+        }
+        return ticks;
+    }
+
+    // Run exactly one fixed physics tick
+    public void tick(GameInput input) {
+        if (isFinished()) {
+            return;
+        }
+        if (controller != null && input != null) {
+            controller.control(this, input);
+        }
+        applyInput(input);
+        tickCount++;
+        if (widePaddleTicks > 0 && --widePaddleTicks == 0) {
+            resizePaddle(paddleWidth);
+        }
+
+        if (isBallLaunched && collisionMode == CollisionMode.SWEPT) {
+            long start = timed ? System.nanoTime() : 0;
+            sweepBall();
+            if (timed) {
+                GameMetrics.SWEEP.record(System.nanoTime() - start);
+            }
+        } else if (isBallLaunched) {
+            long start = timed ? System.nanoTime() : 0;
+            moveBall();
+            if (timed) {
+                long moved = System.nanoTime();
+                GameMetrics.MOVE_BALL.record(moved - start);
+                start = moved;
+            }
+            if (!gameOver) {
+                checkBalloonCollision();
+                if (timed) {
+                    GameMetrics.COLLISION.record(System.nanoTime() - start);
+                }
+            }
+        } else {
+            ball.x = paddle.x + paddle.width / 2 - ball.width / 2;
+            ball.y = paddle.y - ball.height;
+            loadBall();
+        }
+
+        if (!isFinished()) {
+            movePowerUps();
+        }
+        if (proceduralMap != null && !gameOver) {
+            proceduralMap.update(mapGenerator, topBallY());
+        }
+    }
+
+    private void applyInput(GameInput input) {
+        if (input == null) {
+            return;
+        }
+        int steps = input.getPaddleSteps();
+        if (recording != null && (steps != 0 || input.isLaunch())) {
+            recording.record(tickCount, steps, input.isLaunch());
+        }
+        for (; steps < 0; steps++) {
+            if (paddle.x > 0) {
+                paddle.x -= PADDLE_STEP;
+            }
+        }
+        for (; steps > 0; steps--) {
+            if (paddle.x + paddle.width < SCREEN_WIDTH) {
+                paddle.x += PADDLE_STEP;
+            }
+        }
+        if (input.isLaunch()) {
+            isBallLaunched = true;
+        }
+        input.clear();
+    }
+
+    // Move every ball for one tick, stopping at each contact on the way: walls,
+    // the paddle and balloons are all resolved in time order, so several
+    // balloons can pop in one tick and nothing is skipped at high speed.
+    void sweepBall() {
+        loadBall();
+        for (int i = balls.size() - 1; i >= 0; i--) {
+            double x = balls.x[i] + balls.remainderX[i];
+            double y = balls.y[i] + balls.remainderY[i];
+            int velocityX = balls.velocityX[i];
+            int velocityY = balls.velocityY[i];
+            double remaining = 1.0; // Fraction of this tick's movement still to do
+
+            for (int contacts = 0; contacts < MAX_CONTACTS_PER_TICK && remaining > 0; contacts++) {
+                double dx = velocityX * remaining;
+                double dy = velocityY * remaining;
+                hit.reset(1.0);
+
+                // Side and top walls
+                if (dx < 0) {
+                    hit.offer(Math.max(0, -x / dx), true, SweptCollision.WALL, -1);
+                } else if (dx > 0) {
+                    hit.offer(Math.max(0, (SCREEN_WIDTH - BallSet.SIZE - x) / dx), true, SweptCollision.WALL, -1);
+                }
+                if (dy < 0) {
+                    hit.offer(Math.max(0, -y / dy), false, SweptCollision.WALL, -1);
+                }
+
+                // The paddle only counts while the ball is falling onto it
+                if (dy > 0) {
+                    SweptCollision.sweep(x, y, BallSet.SIZE, BallSet.SIZE, dx, dy, paddle.x, paddle.y,
+                            paddle.width, paddle.height, SweptCollision.PADDLE, -1, hit);
+                }
+                mapGenerator.sweepCollision(x, y, BallSet.SIZE, BallSet.SIZE, dx, dy, hit);
+
+                if (hit.kind == SweptCollision.NONE) {
+                    x += dx;
+                    y += dy;
+                    break;
+                }
+
+                x += dx * hit.time;
+                y += dy * hit.time;
+                remaining *= 1 - hit.time;
+
+                if (hit.xAxis) {
+                    velocityX = -velocityX;
+                } else {
+                    velocityY = -velocityY;
+                }
+                if (hit.kind == SweptCollision.BALLOON) {
+                    hitBalloon(hit.balloon);
+                }
+            }
+
+            balls.x[i] = (int) Math.floor(x);
+            balls.y[i] = (int) Math.floor(y);
+            balls.remainderX[i] = x - balls.x[i];
+            balls.remainderY[i] = y - balls.y[i];
+            balls.velocityX[i] = velocityX;
+            balls.velocityY[i] = velocityY;
+
+            // The ball is lost once it falls below the paddle
+            if (balls.y[i] + BallSet.SIZE > SCREEN_HEIGHT) {
+                balls.remove(i);
+            }
+        }
+        storeBall();
+
+        // Game over condition: every ball is lost
+        if (balls.size() == 0) {
+            gameOver = true;
+        } else if (mapGenerator.isCleared() && proceduralMap == null) {
+            win = true;
+        }
+    }
+
+    // Package-private so the benchmarks can drive the hot paths directly
+    void moveBall() {
+        loadBall();
+        for (int i = balls.size() - 1; i >= 0; i--) {
+            balls.x[i] += balls.velocityX[i];
+            balls.y[i] += balls.velocityY[i];
+
+            if (touchesPaddle(balls.x[i], balls.y[i], BallSet.SIZE)) {
+                balls.velocityY[i] = -balls.velocityY[i];
+                balls.y[i] = paddle.y - BallSet.SIZE;
+            }
+
+            if (balls.x[i] <= 0 || balls.x[i] + BallSet.SIZE >= SCREEN_WIDTH) {
+                balls.velocityX[i] = -balls.velocityX[i];
+            }
+
+            if (balls.y[i] <= 0) {
+                balls.velocityY[i] = -balls.velocityY[i];
+            }
+
+            // The ball is lost once it falls below the paddle
+            if (balls.y[i] + BallSet.SIZE > SCREEN_HEIGHT) {
+                balls.remove(i);
+            }
+        }
+        storeBall();
+
+        // Game over condition: every ball is lost
+        if (balls.size() == 0) {
+            gameOver = true;
+        }
+    }
+
+    void checkBalloonCollision() {
+        loadBall();
+        for (int i = balls.size() - 1; i >= 0; i--) {
+            // Only the balloons in the grid cells under the ball are tested
+            int hit = mapGenerator.findCollision(balls.x[i], balls.y[i], BallSet.SIZE, BallSet.SIZE);
+            if (hit >= 0) {
+                balls.velocityY[i] = -balls.velocityY[i];
+                hitBalloon(hit);
+            }
+        }
+
+        if (mapGenerator.isCleared() && proceduralMap == null) {
+            win = true; // Endless maps never run out
+        }
+    }
+
+    private void hitBalloon(int id) {
+        if (!mapGenerator.hitBalloon(id)) {
+            return;
+        }
+        score += 2;
+        int x = mapGenerator.getX(id) + mapGenerator.BALLOON_WIDTH / 2;
+        int y = mapGenerator.getY(id) + mapGenerator.BALLOON_HEIGHT / 2;
+        if (listener != null) {
+            listener.balloonPopped(x, y, mapGenerator.getColor(id));
+        }
+        // Levels without power-ups never touch the random, so their rounds stay as before
+        if (powerUpChance > 0) {
+            int type = rollPowerUp();
+            if (type >= 0) {
+                powerUps.add(x - PowerUpSet.SIZE / 2, y - PowerUpSet.SIZE / 2, type);
+            }
+        }
+    }
+
+    // The power-up a pop drops, or -1 for none
+    private int rollPowerUp() {
+        powerUpRolls++;
+        return powerUpRandom.nextInt(100) < powerUpChance ? powerUpRandom.nextInt(PowerUpSet.TYPE_COUNT) : -1;
+    }
+
+    // Power-ups fall straight down and take effect when they land on the paddle
+    private void movePowerUps() {
+        for (int i = powerUps.size() - 1; i >= 0; i--) {
+            powerUps.y[i] += POWER_UP_FALL_SPEED;
+            if (touchesPaddle(powerUps.x[i], powerUps.y[i], PowerUpSet.SIZE)) {
+                collect(powerUps.type[i]);
+                powerUps.remove(i);
+            } else if (powerUps.y[i] > SCREEN_HEIGHT) {
+                powerUps.remove(i);
+            }
+        }
+    }
+
+    private void collect(int type) {
+        if (type == PowerUpSet.MULTI_BALL) {
+            // Every ball in play splits into three, up to MAX_BALLS
+            for (int i = balls.size() - 1; i >= 0; i--) {
+                balls.split(i, -balls.velocityX[i], balls.velocityY[i]);
+                balls.split(i, balls.velocityX[i], -balls.velocityY[i]);
+            }
+        } else if (type == PowerUpSet.WIDE_PADDLE) {
+            if (widePaddleTicks == 0) {
+                resizePaddle(paddleWidth * 3 / 2);
+            }
+            widePaddleTicks = WIDE_PADDLE_TICKS;
+        }
+    }
+
+    // Change the paddle width around its centre, keeping it on screen
+    private void resizePaddle(int width) {
+        int center = paddle.x + paddle.width / 2;
+        paddle.width = width;
+        paddle.x = Math.max(0, Math.min(SCREEN_WIDTH - width, center - width / 2));
+    }
+
+    // Same test as Rectangle.intersects, for a size x size box
+    private boolean touchesPaddle(int x, int y, int size) {
+        return x < paddle.x + paddle.width && paddle.x < x + size && y < paddle.y + paddle.height && paddle.y < y + size;
+    }
+
+    // The ball rectangle is public (the bot and benchmarks move it), so ball 0
+    // is read back from it before the physics run and written to it after
+    private void loadBall() {
+        balls.x[0] = ball.x;
+        balls.y[0] = ball.y;
+    }
+
+    private void storeBall() {
+        ball.setLocation(balls.x[0], balls.y[0]);
+    }
+
+    // Highest ball on screen; endless mode only refills bands below all balls
+    private int topBallY() {
+        int top = SCREEN_HEIGHT;
+        for (int i = 0; i < balls.size(); i++) {
+            top = Math.min(top, balls.y[i]);
+        }
+        return top;
+    }
+
+    // Copy the whole round into snapshot, e.g. every tick for rewinding.
+    // Nothing is allocated once the snapshot's arrays are big enough. The
+    // controller's own state (held keys, a bot's plan) is not included.
+    public void save(GameSnapshot snapshot) {
+        loadBall();
+        snapshot.level = level;
+        snapshot.seed = seed;
+        snapshot.collisionMode = collisionMode;
+        snapshot.ballSpeed = ballSpeed;
+        snapshot.tickCount = tickCount;
+        snapshot.accumulator = accumulator;
+        snapshot.score = score;
+        snapshot.launched = isBallLaunched;
+        snapshot.gameOver = gameOver;
+        snapshot.win = win;
+        snapshot.paddleX = paddle.x;
+        snapshot.paddleWidth = paddle.width;
+        snapshot.widePaddleTicks = widePaddleTicks;
+        snapshot.powerUpRolls = powerUpRolls;
+        snapshot.balls.copyFrom(balls);
+        snapshot.powerUps.copyFrom(powerUps);
+        mapGenerator.save(snapshot);
+        if (proceduralMap != null) {
+            proceduralMap.save(snapshot);
+        } else {
+            snapshot.bands = 0;
+        }
+    }
+
+    // Put the round back to a snapshot taken from this level and seed
+    public void restore(GameSnapshot snapshot) {
+        if (snapshot.level != level || snapshot.seed != seed) {
+            throw new IllegalArgumentException("Snapshot of level " + snapshot.level + " seed " + snapshot.seed
+                    + " can't be restored into level " + level + " seed " + seed);
+        }
+        collisionMode = snapshot.collisionMode;
+        ballSpeed = snapshot.ballSpeed;
+        tickCount = snapshot.tickCount;
+        accumulator = snapshot.accumulator;
+        score = snapshot.score;
+        isBallLaunched = snapshot.launched;
+        gameOver = snapshot.gameOver;
+        win = snapshot.win;
+        paddle.x = snapshot.paddleX;
+        paddle.width = snapshot.paddleWidth;
+        widePaddleTicks = snapshot.widePaddleTicks;
+        if (snapshot.powerUpRolls < powerUpRolls) {
+            powerUpRandom = new SplittableRandom(~seed);
+            powerUpRolls = 0;
+        }
+        while (powerUpRolls < snapshot.powerUpRolls) {
+            rollPowerUp(); // One roll per pop, so this stays well under a millisecond
+        }
+        balls.copyFrom(snapshot.balls);
+        storeBall();
+        powerUps.copyFrom(snapshot.powerUps);
+        mapGenerator.restore(snapshot);
+        if (proceduralMap != null) {
+            proceduralMap.restore(snapshot);
+        }
+    }
+
+    public void setCollisionMode(CollisionMode collisionMode) {
+        this.collisionMode = collisionMode;
+    }
+
+    public CollisionMode getCollisionMode() {
+        return collisionMode;
+    }
+
+    // Change the ball speed (pixels per tick on each axis), keeping each ball's direction
+    public void setBallSpeed(int speed) {
+        ballSpeed = speed;
+        for (int i = 0; i < balls.size(); i++) {
+            balls.velocityX[i] = balls.velocityX[i] < 0 ? -speed : speed;
+            balls.velocityY[i] = balls.velocityY[i] < 0 ? -speed : speed;
+        }
+    }
+
+    public int getBallSpeed() {
+        return ballSpeed;
+    }
+
+    public int getPaddleWidth() {
+        return paddleWidth;
+    }
+
+    public int getBalloonRows() {
+        return balloonRows;
+    }
+
+    // Time moveBall, checkBalloonCollision and sweepBall into GameMetrics.
+    // Off by default so headless runs on many threads don't share counters.
+    public void setTimed(boolean timed) {
+        this.timed = timed;
+    }
+
+    // Let a bot play: it is asked for input before every tick, on top of
+    // whatever the tick's GameInput already holds
+    public void setController(PaddleController controller) {
+        this.controller = controller;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    // Record every input this simulation applies from now on (null stops recording)
+    public void setRecording(InputRecording recording) {
+        this.recording = recording;
+    }
+
+    public boolean isFinished() {
+        return gameOver || win;
+    }
+
+    public boolean isGameOver() {
+        return gameOver;
+    }
+
+    public boolean isWin() {
+        return win;
+    }
+
+    public boolean isBallLaunched() {
+        return isBallLaunched;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public long getTickCount() {
+        return tickCount;
+    }
+
+    public Rectangle getPaddle() {
+        return paddle;
+    }
+
+    // Ball 0; see getBalls() for all of them
+    public Rectangle getBall() {
+        return ball;
+    }
+
+    public BallSet getBalls() {
+        return balls;
+    }
+
+    public PowerUpSet getPowerUps() {
+        return powerUps;
+    }
+
+    // Chunks generated so far in endless mode (0 for the numbered levels)
+    public int getChunkCount() {
+        return proceduralMap != null ? proceduralMap.getChunkCount() : 0;
+    }
+
+    public MapGenerator getMapGenerator() {
+        return mapGenerator;
+    }
+}
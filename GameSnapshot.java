@@ -0,0 +1,321 @@
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.BitSet;
+
+// Everything a GameSimulation needs to carry on from the end of a tick:
+// balls, paddle, power-ups, the balloons left (as a bitset of live ids),
+// score and time. GameSimulation.save() fills one in place, reusing its
+// arrays, so a snapshot can be taken every tick; restore() puts the round
+// back, for rewinding in practice mode or resuming after a crash.
+//
+// File format (big-endian): int magic, byte version, int level, long seed,
+// byte collision mode, int ball speed, then varints for tick count,
+// accumulator, score, elapsed millis, a flags byte, paddle x and width,
+// wide-paddle ticks and power-up rolls. Balls are a count followed by x, y,
+// velocity (zigzag varints) and the two sub-pixel remainders as doubles;
+// power-ups a count followed by x, y and type. Balloons are the id count,
+// the live-id bitset as longs and each live balloon's hits. Endless levels
+// also store each live balloon's position and colour, and the chunk shown
+// in each band; grid levels rebuild those from the level.
+public class GameSnapshot {
+    private static final int MAGIC = 0x42425353; // "BBSS"
+    private static final int VERSION = 1;
+    private static final int FLAG_LAUNCHED = 1;
+    private static final int FLAG_GAME_OVER = 2;
+    private static final int FLAG_WIN = 4;
+    private static final int FLAG_LAYOUT = 8;
+    // More than any level pack can lay out (rows and columns are shorts), so a
+    // corrupt count fails the read instead of allocating gigabytes
+    private static final int MAX_BALLOONS = 1 << 20;
+
+    // Filled in by GameSimulation, MapGenerator and ProceduralMap
+    int level;
+    long seed;
+    GameSimulation.CollisionMode collisionMode = GameSimulation.CollisionMode.DISCRETE;
+    int ballSpeed;
+    long tickCount;
+    long accumulator;
+    int score;
+    boolean launched, gameOver, win;
+    int paddleX, paddleWidth;
+    int widePaddleTicks;
+    long powerUpRolls;
+    final BallSet balls = new BallSet(GameSimulation.MAX_BALLS);
+    final PowerUpSet powerUps = new PowerUpSet(GameSimulation.MAX_POWER_UPS);
+
+    int balloonCount;
+    final BitSet alive = new BitSet();
+    int[] balloonX = new int[0], balloonY = new int[0], balloonHits = new int[0];
+    int[] balloonColor = new int[0]; // ARGB
+    boolean layout; // Whether balloonX, balloonY and balloonColor are filled in
+
+    int bands; // Endless levels only
+    int[] bandChunk = new int[0];
+    int nextChunk;
+    int checkedRemaining;
+
+    private long elapsedMillis; // The round's GameClock time; not used by the simulation
+
+    void ensureBalloons(int count) {
+        if (balloonX.length < count) {
+            int capacity = Math.max(count, balloonX.length * 2);
+            balloonX = new int[capacity];
+            balloonY = new int[capacity];
+            balloonHits = new int[capacity];
+            balloonColor = new int[capacity];
+        }
+    }
+
+    void ensureBands(int count) {
+        if (bandChunk.length < count) {
+            bandChunk = new int[count];
+        }
+    }
+
+    // Take over another snapshot's contents, e.g. to hand it to a writer thread
+    public void copyFrom(GameSnapshot other) {
+        level = other.level;
+        seed = other.seed;
+        collisionMode = other.collisionMode;
+        ballSpeed = other.ballSpeed;
+        tickCount = other.tickCount;
+        accumulator = other.accumulator;
+        score = other.score;
+        launched = other.launched;
+        gameOver = other.gameOver;
+        win = other.win;
+        paddleX = other.paddleX;
+        paddleWidth = other.paddleWidth;
+        widePaddleTicks = other.widePaddleTicks;
+        powerUpRolls = other.powerUpRolls;
+        balls.copyFrom(other.balls);
+        powerUps.copyFrom(other.powerUps);
+        ensureBalloons(other.balloonCount);
+        balloonCount = other.balloonCount;
+        System.arraycopy(other.balloonX, 0, balloonX, 0, balloonCount);
+        System.arraycopy(other.balloonY, 0, balloonY, 0, balloonCount);
+        System.arraycopy(other.balloonHits, 0, balloonHits, 0, balloonCount);
+        System.arraycopy(other.balloonColor, 0, balloonColor, 0, balloonCount);
+        alive.clear();
+        alive.or(other.alive);
+        layout = other.layout;
+        ensureBands(other.bands);
+        bands = other.bands;
+        System.arraycopy(other.bandChunk, 0, bandChunk, 0, bands);
+        nextChunk = other.nextChunk;
+        checkedRemaining = other.checkedRemaining;
+        elapsedMillis = other.elapsedMillis;
+    }
+
+    // Build a new simulation of the snapshot's level and put it in the saved state
+    public GameSimulation resume() {
+        GameSimulation simulation = new GameSimulation(level, seed);
+        simulation.restore(this);
+        return simulation;
+    }
+
+    // Written to a temporary file, synced and then renamed over the old
+    // save, so a crash mid-write leaves the previous save intact
+    public void write(File file) throws IOException {
+        File temporary = new File(file.getPath() + ".tmp");
+        try (FileOutputStream stream = new FileOutputStream(temporary)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+            write(out);
+            out.flush();
+            stream.getFD().sync();
+        }
+        Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void write(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeInt(level);
+        out.writeLong(seed);
+        out.writeByte(collisionMode.ordinal());
+        out.writeInt(ballSpeed);
+        InputRecording.writeVarLong(out, tickCount);
+        InputRecording.writeVarLong(out, accumulator);
+        InputRecording.writeVarLong(out, score);
+        InputRecording.writeVarLong(out, elapsedMillis);
+        boolean endless = bands > 0;
+        out.writeByte((launched ? FLAG_LAUNCHED : 0) | (gameOver ? FLAG_GAME_OVER : 0) | (win ? FLAG_WIN : 0)
+                | (endless ? FLAG_LAYOUT : 0));
+        writeVarInt(out, paddleX);
+        InputRecording.writeVarLong(out, paddleWidth);
+        InputRecording.writeVarLong(out, widePaddleTicks);
+        InputRecording.writeVarLong(out, powerUpRolls);
+
+        out.writeByte(balls.size());
+        for (int i = 0; i < balls.size(); i++) {
+            writeVarInt(out, balls.x[i]);
+            writeVarInt(out, balls.y[i]);
+            writeVarInt(out, balls.velocityX[i]);
+            writeVarInt(out, balls.velocityY[i]);
+            out.writeDouble(balls.remainderX[i]);
+            out.writeDouble(balls.remainderY[i]);
+        }
+        out.writeByte(powerUps.size());
+        for (int i = 0; i < powerUps.size(); i++) {
+            writeVarInt(out, powerUps.x[i]);
+            writeVarInt(out, powerUps.y[i]);
+            out.writeByte(powerUps.type[i]);
+        }
+
+        InputRecording.writeVarLong(out, balloonCount);
+        long[] words = alive.toLongArray();
+        InputRecording.writeVarLong(out, words.length);
+        for (long word : words) {
+            out.writeLong(word);
+        }
+        for (int id = alive.nextSetBit(0); id >= 0; id = alive.nextSetBit(id + 1)) {
+            InputRecording.writeVarLong(out, balloonHits[id]);
+            if (endless) {
+                writeVarInt(out, balloonX[id]);
+                writeVarInt(out, balloonY[id]);
+                out.writeInt(balloonColor[id]);
+            }
+        }
+        if (endless) {
+            InputRecording.writeVarLong(out, bands);
+            for (int band = 0; band < bands; band++) {
+                InputRecording.writeVarLong(out, bandChunk[band] + 1); // -1 (waiting) is stored as 0
+            }
+            InputRecording.writeVarLong(out, nextChunk);
+            InputRecording.writeVarLong(out, checkedRemaining + 1);
+        }
+    }
+
+    public static GameSnapshot read(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a save file: " + file);
+            }
+            int version = in.readUnsignedByte();
+            if (version != VERSION) {
+                throw new IOException("Unsupported save version " + version + ": " + file);
+            }
+            GameSnapshot snapshot = new GameSnapshot();
+            snapshot.level = in.readInt();
+            snapshot.seed = in.readLong();
+            GameSimulation.CollisionMode[] modes = GameSimulation.CollisionMode.values();
+            int mode = in.readUnsignedByte();
+            if (mode >= modes.length) {
+                throw new IOException("Unknown collision mode " + mode + ": " + file);
+            }
+            snapshot.collisionMode = modes[mode];
+            snapshot.ballSpeed = in.readInt();
+            snapshot.tickCount = InputRecording.readVarLong(in);
+            snapshot.accumulator = InputRecording.readVarLong(in);
+            snapshot.score = (int) InputRecording.readVarLong(in);
+            snapshot.elapsedMillis = InputRecording.readVarLong(in);
+            int flags = in.readUnsignedByte();
+            snapshot.launched = (flags & FLAG_LAUNCHED) != 0;
+            snapshot.gameOver = (flags & FLAG_GAME_OVER) != 0;
+            snapshot.win = (flags & FLAG_WIN) != 0;
+            snapshot.layout = (flags & FLAG_LAYOUT) != 0;
+            snapshot.paddleX = readVarInt(in);
+            snapshot.paddleWidth = (int) InputRecording.readVarLong(in);
+            snapshot.widePaddleTicks = (int) InputRecording.readVarLong(in);
+            snapshot.powerUpRolls = InputRecording.readVarLong(in);
+
+            int ballCount = in.readUnsignedByte();
+            if (ballCount > snapshot.balls.capacity()) {
+                throw new IOException("Too many balls (" + ballCount + "): " + file);
+            }
+            for (int i = 0; i < ballCount; i++) {
+                int ball = snapshot.balls.add(readVarInt(in), readVarInt(in), readVarInt(in), readVarInt(in));
+                snapshot.balls.remainderX[ball] = in.readDouble();
+                snapshot.balls.remainderY[ball] = in.readDouble();
+            }
+            int powerUpCount = in.readUnsignedByte();
+            if (powerUpCount > snapshot.powerUps.capacity()) {
+                throw new IOException("Too many power-ups (" + powerUpCount + "): " + file);
+            }
+            for (int i = 0; i < powerUpCount; i++) {
+                snapshot.powerUps.add(readVarInt(in), readVarInt(in), in.readUnsignedByte());
+            }
+
+            // Counts come from the file: check them before sizing arrays with them
+            long balloonCount = InputRecording.readVarLong(in);
+            if (balloonCount < 0 || balloonCount > MAX_BALLOONS) {
+                throw new IOException("Bad balloon count " + balloonCount + ": " + file);
+            }
+            snapshot.balloonCount = (int) balloonCount;
+            snapshot.ensureBalloons(snapshot.balloonCount);
+            long wordCount = InputRecording.readVarLong(in);
+            if (wordCount < 0 || wordCount > (balloonCount + 63) / 64 || wordCount * 8 > file.length()) {
+                throw new IOException("Bad balloon set size " + wordCount + ": " + file);
+            }
+            long[] words = new long[(int) wordCount];
+            for (int i = 0; i < words.length; i++) {
+                words[i] = in.readLong();
+            }
+            snapshot.alive.or(BitSet.valueOf(words));
+            if (snapshot.alive.length() > snapshot.balloonCount) {
+                throw new IOException("Balloon id out of range: " + file);
+            }
+            for (int id = snapshot.alive.nextSetBit(0); id >= 0; id = snapshot.alive.nextSetBit(id + 1)) {
+                snapshot.balloonHits[id] = (int) InputRecording.readVarLong(in);
+                if (snapshot.layout) {
+                    snapshot.balloonX[id] = readVarInt(in);
+                    snapshot.balloonY[id] = readVarInt(in);
+                    snapshot.balloonColor[id] = in.readInt();
+                }
+            }
+            if (snapshot.layout) {
+                long bands = InputRecording.readVarLong(in);
+                if (bands < 0 || bands > file.length()) { // At least a byte each
+                    throw new IOException("Bad band count " + bands + ": " + file);
+                }
+                snapshot.bands = (int) bands;
+                snapshot.ensureBands(snapshot.bands);
+                for (int band = 0; band < snapshot.bands; band++) {
+                    snapshot.bandChunk[band] = (int) InputRecording.readVarLong(in) - 1;
+                }
+                snapshot.nextChunk = (int) InputRecording.readVarLong(in);
+                snapshot.checkedRemaining = (int) InputRecording.readVarLong(in) - 1;
+            }
+            return snapshot;
+        }
+    }
+
+    // Zigzag, so small negative numbers stay short
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        InputRecording.writeVarLong(out, ((value << 1) ^ (value >> 31)) & 0xFFFFFFFFL);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int zigzag = (int) InputRecording.readVarLong(in);
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public long getTickCount() {
+        return tickCount;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public boolean isFinished() {
+        return gameOver || win;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+}
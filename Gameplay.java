@@ -1,202 +1,497 @@
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
+import java.io.File;
+import java.io.IOException;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
 
-class GamePlay extends JPanel implements ActionListener, KeyListener {
+class GamePlay extends JPanel implements ActionListener, KeyListener, GameLoop.Frame {
     private final String username;
-    private final int SCREEN_WIDTH = 600;
-    private final int SCREEN_HEIGHT = 600;
-    private Timer timer;
+    private final int SCREEN_WIDTH = GameSimulation.SCREEN_WIDTH;
+    private final int SCREEN_HEIGHT = GameSimulation.SCREEN_HEIGHT;
+    private static final long MAX_FRAME_NANOS = 250_000_000L; // Don't try to catch up on more than this after a stall
+    private static final Font HUD_FONT = new Font("Arial", Font.PLAIN, 20);
+    private static final Font CELEBRATION_FONT = new Font("Comic Sans MS", Font.BOLD, 50);
+    private static final int HUD_HEIGHT = 40; // Strip at the top holding score and time
+    private static final Font DEBUG_FONT = new Font("Monospaced", Font.PLAIN, 12);
+    private static final Color DEBUG_BACKGROUND = new Color(0, 0, 0, 160);
+    private static final Rectangle DEBUG_AREA = new Rectangle(10, HUD_HEIGHT, 260, 76); // Debug overlay box
+    private static final long DEBUG_REFRESH_NANOS = 250_000_000L; // Overlay text is rebuilt 4 times a second
+    private static final Color[] POWER_UP_COLORS = {Color.CYAN, Color.MAGENTA}; // By PowerUpSet type
+    private static final Color[] FIREWORK_COLORS = {Color.RED, Color.ORANGE, Color.YELLOW, Color.GREEN, Color.CYAN, Color.MAGENTA, Color.WHITE};
+    private static final int MAX_PARTICLES = 16384;
+    private static final int POP_PARTICLES = 200;      // Per popped balloon
+    private static final int FIREWORK_PARTICLES = 1500;
+    private static final boolean PRACTICE = Boolean.getBoolean("bounce.practice");
+    private static final int HISTORY_TICKS = 667;  // Practice mode keeps the last 10 seconds
+    private static final int REWIND_TICKS = 133;   // Backspace goes back 2 seconds
+    private static final int AUTOSAVE_TICKS = 67;  // Save for resuming about once a second
+    private Timer timer;                // Passive mode: Swing timer + repaint()
+    private GameLoop gameLoop;          // Active mode: own thread rendering into a BufferStrategy
+    private volatile boolean ticking;   // Whether the simulation is currently advancing
+    private final Object stateLock = new Object(); // Guards game state when the loop thread is used
     private boolean gameOver = false;
-    private boolean isBallLaunched = false;
-    private int score;
-    private Rectangle paddle, ball;
-    private long startTime;
-    private int ballVelocityX = 5;
-    private int ballVelocityY = -5;
-    private int maxUnlockedLevel = 1; // Start with only level 1 unlocked
+    private final GameClock clock = new GameClock(MAX_FRAME_NANOS); // Play time; runs only while ticking
+    private long lastFrameNanos;
+    private volatile boolean debugOverlay = Boolean.getBoolean("bounce.debugOverlay"); // Toggled with F3
+    private final String[] debugLines = new String[4];
+    private long debugUpdatedNanos;
+
+    // Where the balls and power-ups, paddle and particles were last painted, for dirty-rectangle repaints
+    private final Rectangle lastEntities = new Rectangle();
+    private final Rectangle entities = new Rectangle();
+    private final Rectangle lastPaddle = new Rectangle();
+    private final Rectangle lastParticles = new Rectangle();
+    private final Rectangle changedArea = new Rectangle();
+    private boolean fullRepaint = true;
 
     private boolean win = false;
-    private MapGenerator mapGenerator;
+    private GameSimulation simulation;
+    private final GameInput input = new GameInput();
+    private final InputState inputState = new InputState(); // Held keys and mouse, sampled once per tick
+    private InputRecording recording; // Set while recording the round for replay
+    private final SnapshotHistory history = PRACTICE ? new SnapshotHistory(HISTORY_TICKS) : null; // Guarded by stateLock
+    private final SnapshotWriter saveWriter; // Set with -Dbounce.saveDir, shared by all games
+    private final GameSnapshot autosave = new GameSnapshot();
+    private long savedTick;
     private final Scoreboard scoreboard;
+    private final ParticleSystem particles = new ParticleSystem(MAX_PARTICLES); // Guarded by stateLock
+    private final SplittableRandom effectRandom = new SplittableRandom(); // Firework placement, not game state
 
     private int currentLevel;
 
-    // Level-specific variables
-    private int ballSpeed;
-    private int paddleWidth;
-    private int balloonRows;
-
     public GamePlay(String username, Scoreboard scoreboard, int level) {
         this.username = username;
         this.scoreboard = scoreboard;
         this.currentLevel = level; // Set the current level
+        // -Dbounce.saveDir=<dir> keeps a save of the round in progress, so a
+        // crashed or closed game resumes where it was
+        saveWriter = System.getProperty("bounce.saveDir") != null ? SnapshotWriter.shared() : null;
         setPreferredSize(new Dimension(SCREEN_WIDTH, SCREEN_HEIGHT));
         setBackground(Color.BLACK);
         setFocusable(true);
         addKeyListener(this);
+        MouseAdapter mouse = createMouseInput();
+        addMouseListener(mouse);
+        addMouseMotionListener(mouse);
+
+        // -Dbounce.activeRendering=true switches to a Canvas driven by its own
+        // game-loop thread; -Dbounce.fps sets the frame cap (0 = uncapped)
+        if (Boolean.getBoolean("bounce.activeRendering")) {
+            Canvas canvas = new Canvas();
+            canvas.setIgnoreRepaint(true);
+            canvas.setBackground(Color.BLACK);
+            canvas.setFocusable(true);
+            canvas.addKeyListener(this);
+            canvas.addMouseListener(mouse);
+            canvas.addMouseMotionListener(mouse);
+            setLayout(new BorderLayout());
+            add(canvas, BorderLayout.CENTER);
+            gameLoop = new GameLoop(canvas, this, Integer.getInteger("bounce.fps", 120));
+        } else {
+            timer = new Timer(15, this);
+        }
+
+        GameMetrics.register(); // Timings over JMX, also shown by the debug overlay
         requestFocusInWindow();
         initGame();
     }
 
-    private void initGame() {
-        // Initialize level-specific settings
-        switch (currentLevel) {
-            case 1: // Easy
-                ballSpeed = 3;          // Slower ball speed
-                paddleWidth = 120;      // Wider paddle
-                balloonRows = 3;        // Fewer rows of balloons
-                break;
-            case 2: // Medium
-                ballSpeed = 4;          // Medium ball speed
-                paddleWidth = 120;      // Medium paddle width
-                balloonRows = 4;        // More rows of balloons
-                break;
-            case 3: // Hard
-                ballSpeed = 5;          // Faster ball speed
-                paddleWidth = 120;      // Narrower paddle
-                balloonRows = 5;        // Maximum rows of balloons
-                break;
-            default:
-                ballSpeed = 3;          // Default to easy
-                paddleWidth = 120;
-                balloonRows = 3;
-                break;
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        if (gameLoop != null) {
+            getComponent(0).requestFocus();
+            gameLoop.start();
         }
+    }
 
-        // Initialize paddle and ball
-        paddle = new Rectangle(SCREEN_WIDTH / 2 - paddleWidth / 2, SCREEN_HEIGHT - 50, paddleWidth, 10);
-        ball = new Rectangle(SCREEN_WIDTH / 2 - 10, paddle.y - 20, 20, 20);
+    @Override
+    public void removeNotify() {
+        if (gameLoop != null) {
+            gameLoop.stop();
+        }
+        super.removeNotify();
+    }
 
-        // Initialize balloons
-        mapGenerator = new MapGenerator(balloonRows, 7); // Rows and columns of balloons
+    private void initGame() {
+        synchronized (stateLock) {
+            stopTicking();
+
+            // All game state and physics live in the headless simulation
+            // Endless mode gets a new layout each round unless -Dbounce.seed fixes it
+            long seed = LevelPack.getDefault().isEndless(currentLevel) ? Long.getLong("bounce.seed", System.nanoTime()) : 0;
+            GameSnapshot saved = readSave();
+            simulation = null;
+            if (saved != null) {
+                try {
+                    simulation = saved.resume(); // Throws if the level has changed since the save
+                } catch (IllegalArgumentException e) {
+                    e.printStackTrace(); // Start the level afresh instead
+                    saved = null;
+                }
+            }
+            if (simulation == null) {
+                simulation = new GameSimulation(currentLevel, seed);
+            }
+            seed = simulation.getSeed();
+            simulation.setTimed(true);
+            simulation.setListener((x, y, color) -> particles.burst(x, y, color, POP_PARTICLES, 250f));
+            particles.clear();
+            input.clear();
+            inputState.reset();
+            // -Dbounce.bot=<follow|predict|human> lets a bot play (attract mode, testing the UI)
+            String bot = System.getProperty("bounce.bot");
+            if (bot != null) {
+                simulation.setController(Bots.byName(bot, seed));
+                input.launch();
+            } else {
+                simulation.setController(inputState);
+            }
 
-        // Initialize timer
-        if (timer != null) {
-            timer.stop();
+            // -Dbounce.replayDir=<dir> saves every round's input for ReplayRunner.
+            // A replay has to start at tick 0 and can't rewind, so resumed and practice rounds aren't recorded.
+            boolean replayable = saved == null && history == null;
+            recording = replayable && System.getProperty("bounce.replayDir") != null ? InputRecording.start(simulation) : null;
+            if (history != null) {
+                history.clear();
+            } else {
+                scoreboard.loadRankings(currentLevel); // Read in the background now, for the rank on the end screen
+            }
+            savedTick = simulation.getTickCount();
+
+            gameOver = false;
+            win = false;
+            fullRepaint = true;
+            clock.reset(TimeUnit.MILLISECONDS.toNanos(saved != null ? saved.getElapsedMillis() : 0));
+            startTicking();
         }
-        timer = new Timer(15, this);
-        timer.start();
+    }
 
-        score = 0;
-        gameOver = false;
-        isBallLaunched = false;
-        win = false;
-        startTime = System.currentTimeMillis();
+    // Start or stop advancing the game. In active mode the loop thread keeps
+    // rendering while stopped, so end-of-level effects stay on screen.
+    private void startTicking() {
+        lastFrameNanos = System.nanoTime();
+        clock.start();
+        ticking = true;
+        if (timer != null) {
+            timer.start();
+        }
+    }
 
-        // Set ball velocity based on speed
-        ballVelocityX = ballSpeed;
-        ballVelocityY = -ballSpeed;
+    private void stopTicking() {
+        ticking = false;
+        clock.pause();
+        if (timer != null) {
+            timer.stop();
+        }
     }
 
     @Override
     protected void paintComponent(Graphics g) {
         super.paintComponent(g);
+        if (gameLoop == null) {
+            long start = System.nanoTime();
+            drawGame(g);
+            GameMetrics.PAINT.record(System.nanoTime() - start);
+        }
+    }
+
+    // GameLoop.Frame: called on the game-loop thread in active mode
+    @Override
+    public void render(Graphics2D g, int width, int height) {
+        g.setColor(Color.BLACK);
+        g.fillRect(0, 0, width, height);
+        long start = System.nanoTime();
+        synchronized (stateLock) {
+            drawGame(g);
+        }
+        GameMetrics.PAINT.record(System.nanoTime() - start);
+    }
+
+    @Override
+    public void update(long frameNanos) {
+        GameMetrics.recordFrame(frameNanos);
+        long start = System.nanoTime();
+        advance(frameNanos);
+        GameMetrics.TICK.record(System.nanoTime() - start);
+    }
+
+    private void drawGame(Graphics g) {
+        Startup.milestone("first game frame");
+        Rectangle paddle = simulation.getPaddle();
+        BallSet balls = simulation.getBalls();
+        PowerUpSet powerUps = simulation.getPowerUps();
+
+        // The map is one opaque cached image (background included), so it goes first
+        simulation.getMapGenerator().draw(g);
 
-        // Draw the paddle and ball
+        // Draw the paddle, falling power-ups and balls, then the particles on top
         g.setColor(Color.GREEN);
         g.fillRect(paddle.x, paddle.y, paddle.width, paddle.height);
+        for (int i = 0; i < powerUps.size(); i++) {
+            g.setColor(POWER_UP_COLORS[powerUps.getType(i)]);
+            g.fillRoundRect(powerUps.getX(i), powerUps.getY(i), PowerUpSet.SIZE, PowerUpSet.SIZE, 6, 6);
+        }
+        g.setColor(Color.WHITE);
+        for (int i = 0; i < balls.size(); i++) {
+            g.fillOval(balls.getX(i), balls.getY(i), BallSet.SIZE, BallSet.SIZE);
+        }
+        particles.draw(g);
         g.setColor(Color.WHITE);
-        g.fillOval(ball.x, ball.y, ball.width, ball.height);
 
         // Draw score and time
-        g.setFont(new Font("Arial", Font.PLAIN, 20));
-        g.drawString("Score: " + score, 20, 30);
+        g.setFont(HUD_FONT);
+        g.drawString("Score: " + simulation.getScore(), 20, 30);
 
-        long elapsedTime = (System.currentTimeMillis() - startTime) / 1000;
+        long elapsedTime = TimeUnit.NANOSECONDS.toSeconds(clock.getElapsedNanos());
         g.drawString("Time: " + elapsedTime + "s", SCREEN_WIDTH - 120, 30);
 
-        mapGenerator.draw(g);
-
         // Draw the celebratory animation
-        if (win && currentLevel == 3) {
+        if (win && isLastLevel()) {
             g.setColor(Color.CYAN);
-            g.setFont(new Font("Comic Sans MS", Font.BOLD, 50));
+            g.setFont(CELEBRATION_FONT);
             g.drawString("HURRAY!", SCREEN_WIDTH / 2 - 100, SCREEN_HEIGHT / 2 - 50);
 
         }
+
+        if (debugOverlay) {
+            drawDebugOverlay(g);
+        }
+    }
+
+    // FPS, tick and paint percentiles and the latest GC pause, for diagnosing stutter
+    private void drawDebugOverlay(Graphics g) {
+        long now = System.nanoTime();
+        if (debugLines[0] == null || now - debugUpdatedNanos > DEBUG_REFRESH_NANOS) {
+            debugUpdatedNanos = now;
+            debugLines[0] = String.format("FPS %.0f  frame p99 %.1fms", GameMetrics.getFps(), GameMetrics.FRAME.getP99() / 1e6);
+            debugLines[1] = String.format("tick p50 %dus p99 %dus", GameMetrics.TICK.getP50() / 1000, GameMetrics.TICK.getP99() / 1000);
+            debugLines[2] = String.format("paint p50 %dus p99 %dus", GameMetrics.PAINT.getP50() / 1000, GameMetrics.PAINT.getP99() / 1000);
+            debugLines[3] = String.format("GC %d pauses, last %dms max %dms", GameMetrics.GC_PAUSE.getCount(),
+                    GameMetrics.getLastGcPauseNanos() / 1_000_000, GameMetrics.GC_PAUSE.getMax() / 1_000_000);
+        }
+        g.setColor(DEBUG_BACKGROUND);
+        g.fillRect(DEBUG_AREA.x, DEBUG_AREA.y, DEBUG_AREA.width, DEBUG_AREA.height);
+        g.setColor(Color.YELLOW);
+        g.setFont(DEBUG_FONT);
+        for (int i = 0; i < debugLines.length; i++) {
+            g.drawString(debugLines[i], DEBUG_AREA.x + 6, DEBUG_AREA.y + 16 + i * 17);
+        }
     }
 
     @Override
     public void actionPerformed(ActionEvent e) {
-        if (!gameOver) {
-            if (isBallLaunched) {
-                moveBall();
-                checkBalloonCollision();
-            } else {
-                ball.x = paddle.x + paddle.width / 2 - ball.width / 2;
-                ball.y = paddle.y - ball.height;
+        long now = System.nanoTime();
+        long frameNanos = now - lastFrameNanos;
+        lastFrameNanos = now;
+        GameMetrics.recordFrame(frameNanos);
+        advance(frameNanos);
+        repaintChanged();
+        GameMetrics.TICK.record(System.nanoTime() - now);
+    }
+
+    // Only repaint what moved: old and new balls, power-ups, paddle and
+    // particles, popped balloons and the HUD strip. The map itself is cached
+    // in MapGenerator's layer.
+    private void repaintChanged() {
+        Rectangle paddle = simulation.getPaddle();
+        entityBounds(entities);
+        if (fullRepaint || win) {
+            fullRepaint = false;
+            repaint();
+        } else {
+            repaintUnion(lastEntities, entities);
+            repaintUnion(lastPaddle, paddle);
+            repaintUnion(lastParticles, particles.getBounds());
+            if (simulation.getMapGenerator().takeChangedArea(changedArea)) {
+                repaint(changedArea);
+            }
+            repaint(0, 0, SCREEN_WIDTH, HUD_HEIGHT);
+            if (debugOverlay) {
+                repaint(DEBUG_AREA);
             }
         }
-        repaint();
+        lastEntities.setBounds(entities);
+        lastPaddle.setBounds(paddle);
+        lastParticles.setBounds(particles.getBounds());
     }
 
-    private void moveBall() {
-        ball.x += ballVelocityX;
-        ball.y += ballVelocityY;
+    // Area covered by all balls and falling power-ups
+    private void entityBounds(Rectangle out) {
+        BallSet balls = simulation.getBalls();
+        PowerUpSet powerUps = simulation.getPowerUps();
+        out.setBounds(simulation.getBall());
+        for (int i = 1; i < balls.size(); i++) {
+            out.add(balls.getX(i), balls.getY(i));
+            out.add(balls.getX(i) + BallSet.SIZE, balls.getY(i) + BallSet.SIZE);
+        }
+        for (int i = 0; i < powerUps.size(); i++) {
+            out.add(powerUps.getX(i), powerUps.getY(i));
+            out.add(powerUps.getX(i) + PowerUpSet.SIZE, powerUps.getY(i) + PowerUpSet.SIZE);
+        }
+    }
 
-        if (ball.intersects(paddle)) {
-            ballVelocityY = -ballVelocityY;
-            ball.y = paddle.y - ball.height;
+    private void repaintUnion(Rectangle before, Rectangle after) {
+        if (before.isEmpty() || after.isEmpty()) {
+            if (!before.isEmpty()) {
+                repaint(before.x, before.y, before.width + 1, before.height + 1);
+            } else if (!after.isEmpty()) {
+                repaint(after.x, after.y, after.width + 1, after.height + 1);
+            }
+            return;
         }
+        int x = Math.min(before.x, after.x);
+        int y = Math.min(before.y, after.y);
+        int right = Math.max(before.x + before.width, after.x + after.width);
+        int bottom = Math.max(before.y + before.height, after.y + after.height);
+        repaint(x, y, right - x + 1, bottom - y + 1);
+    }
 
-        if (ball.x <= 0 || ball.x + ball.width >= SCREEN_WIDTH) {
-            ballVelocityX = -ballVelocityX;
+    // Step the simulation by the time since the last frame and react to the
+    // round ending. Runs on the EDT (timer) or the game-loop thread (active).
+    private void advance(long frameNanos) {
+        synchronized (stateLock) {
+            particles.update(Math.min(frameNanos, MAX_FRAME_NANOS));
+            if (!ticking || gameOver || win) {
+                return;
+            }
+            // The frame rate only paces rendering; the simulation decides how many
+            // ticks to run. It advances by exactly the time the clock counted.
+            simulation.step(clock.tick(), input);
+            if (history != null) {
+                history.record(simulation).setElapsedMillis(clock.getElapsedMillis());
+            }
+            autosave();
+
+            if (simulation.isFinished() && recording != null) {
+                saveRecording();
+            }
+            if (simulation.isGameOver()) {
+                gameOver = true;
+                stopTicking();
+                onEventThread(this::showEndScreen); // Show the dialog box instead of red "Game Over"
+            } else if (simulation.isWin()) {
+                win = true;
+                stopTicking();
+
+                // Trigger end screen with animation if it's the last level
+                if (isLastLevel()) {
+                    onEventThread(this::showAnimationAndCelebrate);
+                } else {
+                    Timer delayTimer = new Timer(300, ev -> showEndScreen());
+                    delayTimer.setRepeats(false);
+                    delayTimer.start();
+                }
+            }
         }
+    }
 
-        if (ball.y <= 0) {
-            ballVelocityY = -ballVelocityY;
+    // Hand the round to the save writer about once a second; the save is
+    // removed once the round is over
+    private void autosave() {
+        if (saveWriter == null) {
+            return;
+        }
+        if (simulation.isFinished()) {
+            saveWriter.delete(saveFile());
+        } else if (simulation.getTickCount() - savedTick >= AUTOSAVE_TICKS) {
+            savedTick = simulation.getTickCount();
+            simulation.save(autosave);
+            autosave.setElapsedMillis(clock.getElapsedMillis());
+            saveWriter.submit(autosave, saveFile());
         }
+    }
 
-        // Game over condition: ball falls below the paddle
-        if (ball.y + ball.height > SCREEN_HEIGHT) {
-            gameOver = true;
-            timer.stop();
-            showEndScreen(); // Show the dialog box instead of red "Game Over"
+    private File saveFile() {
+        String name = "level" + currentLevel + "-" + username.replaceAll("[^A-Za-z0-9_-]", "_") + ".bbs";
+        return new File(System.getProperty("bounce.saveDir"), name);
+    }
+
+    // This player's unfinished round of the current level, if one was saved
+    private GameSnapshot readSave() {
+        if (saveWriter == null || !saveFile().isFile()) {
+            return null;
+        }
+        try {
+            GameSnapshot saved = GameSnapshot.read(saveFile());
+            if (saved.getLevel() == currentLevel && !saved.isFinished()) {
+                return saved;
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            e.printStackTrace(); // Start the level afresh instead
         }
+        return null;
     }
 
-    private void checkBalloonCollision() {
-        for (int i = 0; i < mapGenerator.getBalloons().size(); i++) {
-            Rectangle balloonRect = mapGenerator.getBalloons().get(i).getRect();
-            if (ball.intersects(balloonRect)) {
-                ballVelocityY = -ballVelocityY;
-                mapGenerator.removeBalloon(i);
-                score += 2;
-                repaint();
-                break;
+    // Practice mode: go back REWIND_TICKS, also out of a round just lost
+    private void rewind() {
+        synchronized (stateLock) {
+            GameSnapshot snapshot = history != null && !win ? history.rewind(REWIND_TICKS) : null;
+            if (snapshot == null) {
+                return;
+            }
+            simulation.restore(snapshot);
+            clock.reset(TimeUnit.MILLISECONDS.toNanos(snapshot.getElapsedMillis()));
+            particles.clear();
+            input.clear();
+            inputState.reset();
+            gameOver = false;
+            fullRepaint = true;
+            if (!ticking) {
+                startTicking();
             }
         }
+    }
 
-        if (mapGenerator.getBalloons().isEmpty() && !win) {
-            win = true;
-            timer.stop();
+    private void saveRecording() {
+        recording.finish(simulation);
+        File directory = new File(System.getProperty("bounce.replayDir"));
+        String name = "level" + currentLevel + "-" + username.replaceAll("[^A-Za-z0-9_-]", "_") + "-" + System.currentTimeMillis() + ".bbr";
+        try {
+            directory.mkdirs();
+            recording.write(new File(directory, name));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        recording = null;
+    }
 
-            // Trigger end screen with animation if it's level 3
-            if (currentLevel == 3) {
-                showAnimationAndCelebrate();
-            } else {
-                Timer delayTimer = new Timer(300, e -> showEndScreen());
-                delayTimer.setRepeats(false);
-                delayTimer.start();
-            }
+    private boolean isLastLevel() {
+        return LevelPack.getDefault().nextLevel(currentLevel) < 0;
+    }
+
+    // Dialogs must run on the EDT; from the game-loop thread they are queued
+    private void onEventThread(Runnable action) {
+        if (SwingUtilities.isEventDispatchThread()) {
+            action.run();
+        } else {
+            SwingUtilities.invokeLater(action);
         }
     }
 
     private void showAnimationAndCelebrate() {
-        // Start the animation when Level 3 is completed
-        Timer animationTimer = new Timer(100, new ActionListener() {
+        // Start the animation when Level 3 is completed: fireworks for about 5 seconds
+        Timer animationTimer = new Timer(20, new ActionListener() {
             int frame = 0;
 
             @Override
             public void actionPerformed(ActionEvent e) {
                 frame++;
 
-                // Draw celebratory message and animations (such as confetti)
+                synchronized (stateLock) {
+                    if (frame % 12 == 1 && frame < 200) {
+                        launchFirework();
+                    }
+                    if (gameLoop == null) {
+                        particles.update(20_000_000L); // The game timer is stopped; active mode keeps updating on its own
+                    }
+                }
                 repaint();
 
                 // After some frames, show the "HURRAY!" message and stop the animation
-                if (frame > 50) {  // Adjust the frame number to control animation duration
+                if (frame > 250) {  // Adjust the frame number to control animation duration
                     ((Timer) e.getSource()).stop();  // Stop the animation
                     showCongratulationsMessage();
                 }
@@ -206,6 +501,13 @@ class GamePlay extends JPanel implements ActionListener, KeyListener {
         animationTimer.start();
     }
 
+    private void launchFirework() {
+        int x = 80 + effectRandom.nextInt(SCREEN_WIDTH - 160);
+        int y = 80 + effectRandom.nextInt(SCREEN_HEIGHT / 2);
+        Color color = FIREWORK_COLORS[effectRandom.nextInt(FIREWORK_COLORS.length)];
+        particles.burst(x, y, color, FIREWORK_PARTICLES, 320f);
+    }
+
     private void showCongratulationsMessage() {
         // Display a "HURRAY!" message with an animation
         JOptionPane.showMessageDialog(this,
@@ -217,15 +519,36 @@ class GamePlay extends JPanel implements ActionListener, KeyListener {
         showScoreboard();
     }
 
+    // "Your best: #n of m players" for the end screen. The rank is filled in
+    // once the level's rankings are loaded, so the dialog never waits for them.
+    private JLabel rankLabel() {
+        JLabel label = new JLabel("Your best: ...");
+        int level = currentLevel;
+        String player = username;
+        scoreboard.loadRankings(level).thenAccept(rankings -> SwingUtilities.invokeLater(() -> {
+            label.setText("Your best: #" + rankings.rank(level, player) + " of " + rankings.playerCount(level) + " players");
+            Window dialog = SwingUtilities.getWindowAncestor(label);
+            if (dialog != null) {
+                dialog.pack(); // The line got longer
+            }
+        }));
+        return label;
+    }
+
     private void showEndScreen() {
-        long totalTime = (System.currentTimeMillis() - startTime) / 1000;
-        scoreboard.addScore(username, score, totalTime); // Add score to the current level
+        // The clock stopped when the round ended, so the time the dialog is up doesn't count
+        JLabel rank = null;
+        if (history == null) {
+            scoreboard.addScore(currentLevel, username, simulation.getScore(), clock.getElapsedMillis()); // Add score to the level just played
+            rank = rankLabel();
+        }
 
         if (win) {
             // Win dialog
+            String text = "Congratulations! You won Level " + currentLevel + "!";
             int choice = JOptionPane.showOptionDialog(
                     this,
-                    "Congratulations! You won Level " + currentLevel + "!",
+                    rank != null ? new Object[]{text, rank} : text,
                     "Level Completed",
                     JOptionPane.DEFAULT_OPTION,
                     JOptionPane.INFORMATION_MESSAGE,
@@ -240,21 +563,31 @@ class GamePlay extends JPanel implements ActionListener, KeyListener {
                 System.exit(0); // Exit the game
             }
         } else {
-            // Loss dialog (Game Over)
+            // Loss dialog (Game Over); practice rounds can also be rewound
+            Object[] options = history != null
+                    ? new Object[]{"Rewind", "Retry Level", "View Scoreboard", "Exit"}
+                    : new Object[]{"Retry Level", "View Scoreboard", "Exit"};
+            String text = "Game Over! You failed Level " + currentLevel + ".";
             int choice = JOptionPane.showOptionDialog(
                     this,
-                    "Game Over! You failed Level " + currentLevel + ".",
+                    rank != null ? new Object[]{text, rank} : text,
                     "Game Over",
                     JOptionPane.DEFAULT_OPTION,
                     JOptionPane.INFORMATION_MESSAGE,
                     null,
-                    new Object[]{"Retry Level", "View Scoreboard", "Exit"},
+                    options,
                     null
             );
+            if (history != null) {
+                if (choice == 0) {
+                    rewind();
+                    return;
+                }
+                choice--; // Same numbering as without the Rewind button
+            }
 
             if (choice == 0) {
                 initGame(); // Retry the level
-                timer.start();
             } else if (choice == 1) {
                 showScoreboard(); // View the scoreboard
             } else if (choice == 2) {
@@ -273,23 +606,20 @@ class GamePlay extends JPanel implements ActionListener, KeyListener {
 // Callback to restart the current level
         Runnable retryLevelCallback = () -> {
             scoreboardFrame.dispose();  // Close the scoreboard window
-            initGame();                 // Reinitialize the current level
-            timer.start();              // Restart the timer
+            initGame();                 // Reinitialize the current level (restarts ticking)
         };
 
 // Callback to move to the next level
         Runnable nextLevelCallback = () -> {
             scoreboardFrame.dispose();  // Close the scoreboard window
-            if (currentLevel < 3) {     // Check if there is a next level
-                currentLevel++;         // Increment the level
-                initGame();             // Initialize the next level
-                timer.start();          // Restart the timer for the game
+            int nextLevel = LevelPack.getDefault().nextLevel(currentLevel);
+            if (nextLevel >= 0) {       // Check if there is a next level
+                currentLevel = nextLevel;
+                initGame();             // Initialize the next level (restarts ticking)
 
             }
         };
 
-// Assuming the level is defined and the scoreboard object is created:
-        int level = 1;  // or get the current level dynamically
         JPanel scoreboardPanel = scoreboard.getScoreboardPanel(currentLevel, retryLevelCallback, nextLevelCallback);
         // Adding scoreboard panel
         scoreboardFrame.add(scoreboardPanel);
@@ -304,20 +634,61 @@ class GamePlay extends JPanel implements ActionListener, KeyListener {
     @Override
     public void keyPressed(KeyEvent e) {
         int keyCode = e.getKeyCode();
-        if (keyCode == KeyEvent.VK_LEFT && paddle.x > 0) {
-            paddle.x -= 15;
-        } else if (keyCode == KeyEvent.VK_RIGHT && paddle.x + paddle.width < SCREEN_WIDTH) {
-            paddle.x += 15;
-        } else if (keyCode == KeyEvent.VK_ENTER && gameOver) {
-            initGame();
-            timer.start();
-        } else if (keyCode == KeyEvent.VK_SPACE && !isBallLaunched) {
-            isBallLaunched = true;
+        synchronized (stateLock) {
+            if (keyCode == KeyEvent.VK_F3) {
+                debugOverlay = !debugOverlay;
+                fullRepaint = true;
+            } else if (keyCode == KeyEvent.VK_LEFT) {
+                inputState.press(InputState.LEFT); // Key repeats are ignored; the tick decides the speed
+            } else if (keyCode == KeyEvent.VK_RIGHT) {
+                inputState.press(InputState.RIGHT);
+            } else if (keyCode == KeyEvent.VK_ENTER && gameOver) {
+                initGame();
+            } else if (keyCode == KeyEvent.VK_BACK_SPACE) {
+                rewind();
+            } else if (keyCode == KeyEvent.VK_SPACE && !simulation.isBallLaunched()) {
+                inputState.launch();
+            }
         }
     }
 
     @Override
-    public void keyReleased(KeyEvent e) {}
+    public void keyReleased(KeyEvent e) {
+        synchronized (stateLock) {
+            if (e.getKeyCode() == KeyEvent.VK_LEFT) {
+                inputState.release(InputState.LEFT);
+            } else if (e.getKeyCode() == KeyEvent.VK_RIGHT) {
+                inputState.release(InputState.RIGHT);
+            }
+        }
+    }
+
+    // The paddle follows the mouse; a click launches the ball
+    private MouseAdapter createMouseInput() {
+        return new MouseAdapter() {
+            @Override
+            public void mouseMoved(MouseEvent e) {
+                synchronized (stateLock) {
+                    inputState.pointTo(e.getX());
+                }
+            }
+
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                mouseMoved(e);
+            }
+
+            @Override
+            public void mousePressed(MouseEvent e) {
+                synchronized (stateLock) {
+                    if (simulation != null && !simulation.isBallLaunched()) {
+                        inputState.launch();
+                    }
+                }
+            }
+        };
+    }
+
     @Override
     public void keyTyped(KeyEvent e) {}
 }
@@ -0,0 +1,145 @@
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Images from the classpath, decoded once on a background thread and cached.
+// Screens draw them with drawScaled(), which keeps a copy scaled to the size
+// being drawn, in the screen's pixel format, so a repaint is a plain blit
+// instead of decoding or resampling a large PNG. Until an image (or a new
+// size of it) is ready the screen draws what there is, stretched, and is
+// repainted when the rest arrives.
+public class ImageAssets {
+    private static final int MAX_SCALED = 8; // Scaled copies kept, across all images
+
+    private static final ExecutorService loader = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "image-loader");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final Map<String, CompletableFuture<BufferedImage>> images = new ConcurrentHashMap<>();
+    private static final Map<String, BufferedImage> scaled = Collections.synchronizedMap(
+            new LinkedHashMap<String, BufferedImage>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, BufferedImage> eldest) {
+                    return size() > MAX_SCALED;
+                }
+            });
+    private static final Map<String, BufferedImage> latest = new ConcurrentHashMap<>(); // Newest scaled copy per image
+    private static final Map<String, String> wanted = new ConcurrentHashMap<>();        // Size each image was last drawn at
+
+    // Start decoding images a screen will need soon
+    public static void preload(String... paths) {
+        for (String path : paths) {
+            load(path);
+        }
+    }
+
+    // The decoded image; completes with null if it can't be read
+    public static CompletableFuture<BufferedImage> load(String path) {
+        return images.computeIfAbsent(path, p -> CompletableFuture.supplyAsync(() -> decode(p), loader));
+    }
+
+    // Draw the image over (0, 0, width, height). Never blocks: while the image
+    // is still loading nothing is drawn and this returns false, and component
+    // is repainted once the copy for this size is ready.
+    public static boolean drawScaled(Graphics g, String path, int width, int height, Component component) {
+        if (width <= 0 || height <= 0) {
+            return false;
+        }
+        String key = path + "@" + width + "x" + height;
+        BufferedImage image = scaled.get(key);
+        if (image == null) {
+            CompletableFuture<BufferedImage> source = load(path);
+            if (!key.equals(wanted.put(path, key))) {
+                source.thenAcceptAsync(decoded -> scaleInBackground(path, key, decoded, width, height, component), loader);
+            }
+            image = latest.get(path);
+            if (image == null) {
+                image = source.getNow(null);
+            }
+        }
+        if (image == null) {
+            return false;
+        }
+        g.drawImage(image, 0, 0, width, height, null);
+        return true;
+    }
+
+    private static void scaleInBackground(String path, String key, BufferedImage source, int width, int height,
+                                          Component component) {
+        // While a window is being resized only the size it ends up at is worth scaling
+        if (source == null || !key.equals(wanted.get(path))) {
+            return;
+        }
+        BufferedImage image = scale(source, width, height);
+        scaled.put(key, image);
+        latest.put(path, image);
+        component.repaint();
+    }
+
+    private static BufferedImage decode(String path) {
+        try (InputStream in = ImageAssets.class.getResourceAsStream(path)) {
+            BufferedImage image = in != null ? ImageIO.read(in) : null;
+            if (image == null) {
+                System.err.println("Error loading image: " + path);
+            }
+            return image;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    // Halve the image until it is within 2x of the target, then finish with
+    // one bilinear pass; a single bilinear step from a much larger image
+    // skips most of its pixels and looks grainy
+    private static BufferedImage scale(BufferedImage source, int width, int height) {
+        BufferedImage image = source;
+        int w = source.getWidth();
+        int h = source.getHeight();
+        int transparency = isOpaque(source) ? Transparency.OPAQUE : source.getTransparency();
+        do {
+            w = w / 2 >= width ? w / 2 : width;
+            h = h / 2 >= height ? h / 2 : height;
+            BufferedImage step = BalloonSprites.createImage(w, h, transparency);
+            Graphics2D g = step.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.drawImage(image, 0, 0, w, h, null);
+            } finally {
+                g.dispose();
+            }
+            image = step;
+        } while (w != width || h != height);
+        return image;
+    }
+
+    // PNGs are often saved with an alpha channel they don't use; an opaque
+    // copy blits several times faster than a translucent one
+    private static boolean isOpaque(BufferedImage image) {
+        Raster alpha = image.getAlphaRaster();
+        if (alpha == null) {
+            return true;
+        }
+        int[] row = new int[image.getWidth()];
+        for (int y = 0; y < image.getHeight(); y++) {
+            alpha.getSamples(0, y, row.length, 1, 0, row);
+            for (int value : row) {
+                if (value != 255) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
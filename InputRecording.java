@@ -0,0 +1,206 @@
+import java.io.*;
+import java.util.Arrays;
+
+// Tick-indexed log of the input a round received. The simulation is
+// deterministic for a given level, seed, collision mode and ball speed, so
+// replaying the log reproduces the round tick for tick, with no display and
+// as fast as the CPU allows.
+//
+// File format (big-endian): int magic, byte version, int level, long seed,
+// byte collision mode, int ball speed, varint event count, then per event
+// varint tick delta, zigzag varint paddle steps and a flags byte, and finally
+// the recorded result: varint tick count, varint score, byte win.
+public class InputRecording {
+    private static final int MAGIC = 0x42425250; // "BBRP"
+    private static final int VERSION = 1;
+    private static final int FLAG_LAUNCH = 1;
+
+    private final int level;
+    private final long seed;
+    private final GameSimulation.CollisionMode collisionMode;
+    private final int ballSpeed;
+
+    // Events as parallel arrays: the tick they were applied on and what they did
+    private long[] ticks = new long[64];
+    private int[] paddleSteps = new int[64];
+    private byte[] flags = new byte[64];
+    private int size;
+
+    // How the recorded round ended; tickCount is -1 until finish() is called
+    private long tickCount = -1;
+    private int score;
+    private boolean win;
+
+    public InputRecording(int level, long seed, GameSimulation.CollisionMode collisionMode, int ballSpeed) {
+        this.level = level;
+        this.seed = seed;
+        this.collisionMode = collisionMode;
+        this.ballSpeed = ballSpeed;
+    }
+
+    // Start recording a freshly created simulation
+    public static InputRecording start(GameSimulation simulation) {
+        InputRecording recording = new InputRecording(simulation.getLevel(), simulation.getSeed(),
+                simulation.getCollisionMode(), simulation.getBallSpeed());
+        simulation.setRecording(recording);
+        return recording;
+    }
+
+    // Called by GameSimulation for each tick that had input
+    void record(long tick, int steps, boolean launch) {
+        if (size == ticks.length) {
+            int capacity = size * 2;
+            ticks = Arrays.copyOf(ticks, capacity);
+            paddleSteps = Arrays.copyOf(paddleSteps, capacity);
+            flags = Arrays.copyOf(flags, capacity);
+        }
+        ticks[size] = tick;
+        paddleSteps[size] = steps;
+        flags[size] = (byte) (launch ? FLAG_LAUNCH : 0);
+        size++;
+    }
+
+    // Store the outcome so a replay can be checked against it
+    public void finish(GameSimulation simulation) {
+        simulation.setRecording(null);
+        tickCount = simulation.getTickCount();
+        score = simulation.getScore();
+        win = simulation.isWin();
+    }
+
+    // Build a new simulation and drive it with the recorded input until it
+    // ends, or until the recorded tick count if the round was cut short
+    public GameSimulation replay() {
+        GameSimulation simulation = new GameSimulation(level, seed);
+        simulation.setCollisionMode(collisionMode);
+        simulation.setBallSpeed(ballSpeed);
+        GameInput input = new GameInput();
+        int next = 0;
+
+        while (!simulation.isFinished() && (tickCount < 0 ? next < size : simulation.getTickCount() < tickCount)) {
+            long tick = simulation.getTickCount();
+            if (next < size && ticks[next] == tick) {
+                for (int steps = paddleSteps[next]; steps < 0; steps++) {
+                    input.moveLeft();
+                }
+                for (int steps = paddleSteps[next]; steps > 0; steps--) {
+                    input.moveRight();
+                }
+                if ((flags[next] & FLAG_LAUNCH) != 0) {
+                    input.launch();
+                }
+                next++;
+            }
+            simulation.tick(input);
+        }
+        return simulation;
+    }
+
+    // Whether a replayed simulation ended exactly like the recorded round
+    public boolean matches(GameSimulation simulation) {
+        return simulation.getTickCount() == tickCount && simulation.getScore() == score && simulation.isWin() == win;
+    }
+
+    public void write(File file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeInt(level);
+            out.writeLong(seed);
+            out.writeByte(collisionMode.ordinal());
+            out.writeInt(ballSpeed);
+
+            writeVarLong(out, size);
+            long previous = 0;
+            for (int i = 0; i < size; i++) {
+                writeVarLong(out, ticks[i] - previous);
+                writeVarLong(out, (paddleSteps[i] << 1) ^ (paddleSteps[i] >> 31)); // Zigzag: small negatives stay short
+                out.writeByte(flags[i]);
+                previous = ticks[i];
+            }
+
+            writeVarLong(out, tickCount + 1); // -1 (unfinished) is stored as 0
+            writeVarLong(out, score);
+            out.writeBoolean(win);
+        }
+    }
+
+    public static InputRecording read(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a replay file: " + file);
+            }
+            int version = in.readUnsignedByte();
+            if (version != VERSION) {
+                throw new IOException("Unsupported replay version " + version + ": " + file);
+            }
+            int level = in.readInt();
+            long seed = in.readLong();
+            GameSimulation.CollisionMode[] modes = GameSimulation.CollisionMode.values();
+            int mode = in.readUnsignedByte();
+            if (mode >= modes.length) {
+                throw new IOException("Unknown collision mode " + mode + ": " + file);
+            }
+            InputRecording recording = new InputRecording(level, seed, modes[mode], in.readInt());
+
+            long events = readVarLong(in);
+            long tick = 0;
+            for (long i = 0; i < events; i++) {
+                tick += readVarLong(in);
+                int zigzag = (int) readVarLong(in);
+                int steps = (zigzag >>> 1) ^ -(zigzag & 1);
+                recording.record(tick, steps, (in.readByte() & FLAG_LAUNCH) != 0);
+            }
+
+            recording.tickCount = readVarLong(in) - 1;
+            recording.score = (int) readVarLong(in);
+            recording.win = in.readBoolean();
+            return recording;
+        }
+    }
+
+    // Also used by GameSnapshot's file format
+    static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getEventCount() {
+        return size;
+    }
+
+    public long getTickCount() {
+        return tickCount;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public boolean isWin() {
+        return win;
+    }
+}
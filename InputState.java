@@ -0,0 +1,103 @@
+// What the player is holding, as opposed to the events that got it there.
+// Key, mouse and analog-stick events only update this state; once per tick
+// the simulation asks it (as its PaddleController) for that tick's moves.
+// Paddle speed therefore depends on the tick rate, not on the OS key-repeat
+// rate or the frame rate, and repeat events no longer reach the game.
+//
+// Not thread-safe: GamePlay calls everything under its stateLock.
+public class InputState implements PaddleController {
+    public static final int LEFT = -1;
+    public static final int RIGHT = 1;
+    private static final int TICKS_PER_HELD_STEP = 2;  // Held key: one PADDLE_STEP every 2 ticks (500 px/s)
+    private static final int MAX_POINTER_STEPS = 2;    // Mouse: at most this many steps per tick
+    private static final double MAX_AXIS_STEPS = 1.0;  // Stick fully over: steps per tick
+    private static final double AXIS_DEAD_ZONE = 0.15;
+
+    private boolean leftDown, rightDown;
+    private int leftTaps, rightTaps; // Presses since the last tick, so a tap shorter than a tick still moves
+    private int heldTicks;
+    private boolean launch;
+    private int pointerX = -1;       // Where the mouse wants the paddle centre, -1 when not using the mouse
+    private double axis;             // Analog stick, -1 (left) to 1 (right)
+    private double axisSteps;        // Fractional steps carried over between ticks
+
+    public void press(int direction) {
+        pointerX = -1; // Keys take over from the mouse
+        if (direction == LEFT && !leftDown) {
+            leftDown = true;
+            leftTaps++;
+        } else if (direction == RIGHT && !rightDown) {
+            rightDown = true;
+            rightTaps++;
+        }
+    }
+
+    public void release(int direction) {
+        if (direction == LEFT) {
+            leftDown = false;
+        } else if (direction == RIGHT) {
+            rightDown = false;
+        }
+    }
+
+    public void launch() {
+        launch = true;
+    }
+
+    // Move the paddle centre towards x (e.g. the mouse), as fast as MAX_POINTER_STEPS allows
+    public void pointTo(int x) {
+        pointerX = x;
+    }
+
+    // Analog input such as a gamepad stick; values inside the dead zone count as centred
+    public void setAxis(double value) {
+        axis = Math.abs(value) < AXIS_DEAD_ZONE ? 0 : Math.max(-1, Math.min(1, value));
+    }
+
+    // Forget everything held, e.g. when a new round starts
+    public void reset() {
+        leftDown = rightDown = false;
+        leftTaps = rightTaps = 0;
+        heldTicks = 0;
+        launch = false;
+        pointerX = -1;
+        axis = 0;
+        axisSteps = 0;
+    }
+
+    // The snapshot for one tick
+    @Override
+    public void control(GameSimulation simulation, GameInput input) {
+        int steps = rightTaps - leftTaps;
+        int held = (rightDown ? RIGHT : 0) + (leftDown ? LEFT : 0);
+        if (leftTaps > 0 || rightTaps > 0 || held == 0) {
+            heldTicks = 0;
+        } else if (++heldTicks >= TICKS_PER_HELD_STEP) {
+            heldTicks = 0;
+            steps += held;
+        }
+        leftTaps = rightTaps = 0;
+
+        if (pointerX >= 0) {
+            int paddleCenter = simulation.getPaddle().x + simulation.getPaddle().width / 2;
+            int pointerSteps = Math.round((float) (pointerX - paddleCenter) / GameSimulation.PADDLE_STEP);
+            steps += Math.max(-MAX_POINTER_STEPS, Math.min(MAX_POINTER_STEPS, pointerSteps));
+        }
+
+        axisSteps += axis * MAX_AXIS_STEPS;
+        int whole = (int) axisSteps;
+        axisSteps -= whole;
+        steps += whole;
+
+        for (; steps < 0; steps++) {
+            input.moveLeft();
+        }
+        for (; steps > 0; steps--) {
+            input.moveRight();
+        }
+        if (launch) {
+            input.launch();
+            launch = false;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Log-linear latency histogram in the style of HdrHistogram: each power of
+// two is split into 16 linear buckets, so any recorded value is within about
+// 6% of its bucket. record() is a few integer operations and atomic
+// increments on preallocated arrays, cheap enough for every tick and paint,
+// and safe to call from any thread while JMX reads it.
+public class LatencyHistogram implements LatencyHistogramMBean {
+    private static final int SUB_BITS = 4;                 // 16 buckets per power of two
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int MAX_SHIFT = 36;               // Up to ~2^40 ns (18 minutes)
+    private static final long MAX_VALUE = (2L * SUB_COUNT << MAX_SHIFT) - 1;
+
+    private final String name;
+    private final AtomicLongArray counts = new AtomicLongArray((MAX_SHIFT + 2) * SUB_COUNT);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    public LatencyHistogram(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void record(long nanos) {
+        long value = Math.min(Math.max(nanos, 0), MAX_VALUE);
+        counts.incrementAndGet(index(value));
+        count.incrementAndGet();
+        total.addAndGet(value);
+        long previous;
+        while (value > (previous = max.get()) && !max.compareAndSet(previous, value)) {
+            // Retry until the max is at least this value
+        }
+    }
+
+    // Value at or below which the given fraction (0..1) of recordings fall,
+    // reported as the top of its bucket like HdrHistogram does
+    public long percentile(double fraction) {
+        long recorded = count.get();
+        if (recorded == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(fraction * recorded));
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= target) {
+                return Math.min(highestInBucket(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    @Override
+    public long getCount() {
+        return count.get();
+    }
+
+    @Override
+    public long getMean() {
+        long recorded = count.get();
+        return recorded == 0 ? 0 : total.get() / recorded;
+    }
+
+    @Override
+    public long getP50() {
+        return percentile(0.50);
+    }
+
+    @Override
+    public long getP90() {
+        return percentile(0.90);
+    }
+
+    @Override
+    public long getP99() {
+        return percentile(0.99);
+    }
+
+    @Override
+    public long getP999() {
+        return percentile(0.999);
+    }
+
+    @Override
+    public long getMax() {
+        return max.get();
+    }
+
+    // Not atomic with concurrent record() calls; a recording may be half-cleared
+    @Override
+    public void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+        count.set(0);
+        total.set(0);
+        max.set(0);
+    }
+
+    // Values below 2 * SUB_COUNT map to themselves; above that, the top
+    // SUB_BITS + 1 bits pick the bucket within the value's power of two
+    private static int index(long value) {
+        if (value < 2 * SUB_COUNT) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        return (shift + 1) * SUB_COUNT + (int) (value >>> shift) - SUB_COUNT;
+    }
+
+    private static long highestInBucket(int index) {
+        if (index < 2 * SUB_COUNT) {
+            return index;
+        }
+        int shift = index / SUB_COUNT - 1;
+        long lowest = (long) (index % SUB_COUNT + SUB_COUNT) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
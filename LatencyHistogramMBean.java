@@ -0,0 +1,18 @@
+// JMX view of a LatencyHistogram. All times are in nanoseconds.
+public interface LatencyHistogramMBean {
+    long getCount();
+
+    long getMean();
+
+    long getP50();
+
+    long getP90();
+
+    long getP99();
+
+    long getP999();
+
+    long getMax();
+
+    void reset();
+}
@@ -0,0 +1,202 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// In-memory top-N leaderboards, one per level. A level is loaded from the
+// store once; after that new scores are inserted incrementally and reads
+// return the cached list directly. A WatchService drops a level's list when
+// its file is changed by someone else, so the next read reloads it.
+//
+// The per-player Rankings are kept the same way: loaded per level on first
+// use, updated by add(), dropped with the list. Loading holds no lock that
+// add() needs, and rankingsAsync() runs it on a background thread, so
+// neither the game nor the screens wait for a level's history to be read.
+public class Leaderboards implements AutoCloseable {
+    private static final Pattern DATA_FILE = Pattern.compile("scoreboard_level_(\\d+)\\.dat");
+    private static final int LOCK_STRIPES = 16;
+
+    private final ScoreStore store;
+    private final ScoreWriter writer;
+    private final int capacity;
+    private final Map<Integer, List<PlayerScore>> boards = new ConcurrentHashMap<>(); // Immutable lists, replaced on change
+    private final Rankings rankings = new Rankings();
+    private final Object[] locks = new Object[LOCK_STRIPES]; // Per-level locks for loading and inserting
+    private final ExecutorService loader = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "rankings-loader");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private WatchService watcher;
+
+    public Leaderboards(File directory, ScoreStore store, ScoreWriter writer, int capacity) {
+        this.store = store;
+        this.writer = writer;
+        this.capacity = capacity;
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+        try {
+            watcher = FileSystems.getDefault().newWatchService();
+            directory.toPath().register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+            Thread thread = new Thread(this::watch, "scoreboard-watcher");
+            thread.setDaemon(true);
+            thread.start();
+        } catch (IOException e) {
+            System.err.println("Not watching scoreboard files for changes: " + e.getMessage());
+        }
+    }
+
+    // Queue the score for writing and insert it into the cached list, if the
+    // level is loaded. Scores for different levels don't contend.
+    public void add(int level, String username, int score, long timeMillis) {
+        synchronized (lock(level)) {
+            writer.submit(level, username, score, timeMillis);
+            List<PlayerScore> board = boards.get(level);
+            if (board != null) {
+                boards.put(level, insert(board, new PlayerScore(username, score, timeMillis)));
+            }
+            rankings.add(level, username, score, timeMillis);
+        }
+    }
+
+    // The per-player rankings with the given levels loaded, e.g. every level
+    // in the pack for cross-level totals
+    public Rankings rankings(int... levels) throws IOException {
+        for (int level : levels) {
+            while (!rankings.isLoaded(level)) {
+                boolean loading;
+                synchronized (lock(level)) {
+                    // From here add() hands the level's scores to the load instead of the rankings
+                    loading = rankings.startLoad(level);
+                }
+                if (loading) {
+                    writer.flush(); // So every score added before startLoad() is in the scan
+                    rankings.load(level, store);
+                } else {
+                    rankings.awaitLoad(level); // Loaded by another thread; retried if that failed
+                }
+            }
+        }
+        return rankings;
+    }
+
+    // rankings() on the loader thread. Completes with the rankings once the
+    // levels are loaded (or failed to load), after which they answer from memory.
+    public CompletableFuture<Rankings> rankingsAsync(int... levels) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return rankings(levels);
+            } catch (IOException e) {
+                e.printStackTrace();
+                return rankings;
+            }
+        }, loader);
+    }
+
+    // Best scores of a level, highest first. Returns the cached (unmodifiable)
+    // list without locking, loading it from the store only the first time or
+    // after a change.
+    public List<PlayerScore> get(int level) throws IOException {
+        List<PlayerScore> board = boards.get(level);
+        if (board != null) {
+            return board;
+        }
+        synchronized (lock(level)) {
+            board = boards.get(level);
+            if (board == null) {
+                writer.flush(); // So scores added before the level was loaded are in the store
+                List<PlayerScore> top = store.top(level);
+                board = Collections.unmodifiableList(new ArrayList<>(top.subList(0, Math.min(capacity, top.size()))));
+                boards.put(level, board);
+            }
+            return board;
+        }
+    }
+
+    public void invalidate(int level) {
+        synchronized (lock(level)) {
+            boards.remove(level);
+            rankings.drop(level);
+        }
+    }
+
+    private Object lock(int level) {
+        return locks[Math.floorMod(level, LOCK_STRIPES)];
+    }
+
+    @Override
+    public void close() {
+        loader.shutdownNow();
+        if (watcher != null) {
+            try {
+                watcher.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    // Copy-on-write insert: after every score that ranks at least as high
+    // (same order as ScoreStore.top()), trimmed to capacity
+    private List<PlayerScore> insert(List<PlayerScore> board, PlayerScore score) {
+        long key = ScoreStore.scoreKey(score.getScore(), score.getTimeMillis());
+        int low = 0;
+        int high = board.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            PlayerScore other = board.get(mid);
+            if (ScoreStore.scoreKey(other.getScore(), other.getTimeMillis()) <= key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        if (low >= capacity) {
+            return board; // Doesn't make the list
+        }
+        List<PlayerScore> updated = new ArrayList<>(Math.min(board.size() + 1, capacity));
+        updated.addAll(board.subList(0, low));
+        updated.add(score);
+        updated.addAll(board.subList(low, Math.min(board.size(), capacity - 1)));
+        return Collections.unmodifiableList(updated);
+    }
+
+    private void watch() {
+        while (true) {
+            WatchKey key;
+            try {
+                key = watcher.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (!(event.context() instanceof Path)) {
+                    continue; // OVERFLOW
+                }
+                Matcher matcher = DATA_FILE.matcher(((Path) event.context()).getFileName().toString());
+                if (matcher.matches()) {
+                    int level = Integer.parseInt(matcher.group(1));
+                    try {
+                        if (store.reloadIfChanged(level)) {
+                            invalidate(level);
+                        }
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                        invalidate(level);
+                    }
+                }
+            }
+            if (!key.reset()) {
+                return; // Directory is gone
+            }
+        }
+    }
+}
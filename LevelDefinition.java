@@ -0,0 +1,62 @@
+// Parameters of one level, as loaded from a level pack
+public class LevelDefinition {
+    // GRID is a fixed rows x columns layout; ENDLESS streams procedural chunks
+    public enum Type { GRID, ENDLESS }
+
+    private final int id;
+    private final String name;
+    private final Type type;
+    private final int ballSpeed;
+    private final int paddleWidth;
+    private final int rows;
+    private final int columns;
+    private final int powerUpChance; // Percent chance that a popped balloon drops a power-up
+
+    public LevelDefinition(int id, String name, Type type, int ballSpeed, int paddleWidth, int rows, int columns,
+                           int powerUpChance) {
+        this.id = id;
+        this.name = name;
+        this.type = type;
+        this.ballSpeed = ballSpeed;
+        this.paddleWidth = paddleWidth;
+        this.rows = rows;
+        this.columns = columns;
+        this.powerUpChance = powerUpChance;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public boolean isEndless() {
+        return type == Type.ENDLESS;
+    }
+
+    public int getBallSpeed() {
+        return ballSpeed;
+    }
+
+    public int getPaddleWidth() {
+        return paddleWidth;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public int getPowerUpChance() {
+        return powerUpChance;
+    }
+}
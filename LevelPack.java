@@ -0,0 +1,295 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+
+// A set of levels, authored as text (levels.txt) and loaded from a compiled
+// binary (levels.bin). Opening a pack only reads its index (ids, names,
+// types), which is all the menus need; a level's parameters are decoded the
+// first time it is played and kept in a small LRU cache after that.
+//
+// levels.bin (big-endian): int magic, byte version, int count, then count
+// index entries (int id, byte type, int record offset, UTF name) sorted by
+// id, then the records (short ballSpeed, short paddleWidth, short rows,
+// short columns, short powerUpChance). Version 1 packs have no powerUpChance.
+public class LevelPack {
+    private static final int MAGIC = 0x42424C50; // "BBLP"
+    private static final int VERSION = 2;
+    private static final int CACHE_SIZE = 64; // Parsed levels kept in memory
+    // Column names of the text format, for error messages
+    private static final String[] FIELDS = {"id", "name", "type", "ballSpeed", "paddleWidth", "rows", "columns", "powerUps"};
+    private static final int[] MIN_VALUES = {0, 0, 0, 1, 1, 1, 1, 0}; // Of the numeric fields, see maxValue()
+
+    private static LevelPack defaultPack;
+
+    private final ByteBuffer data;
+    private final int[] ids;       // Sorted
+    private final String[] names;
+    private final LevelDefinition.Type[] types;
+    private final int[] offsets;
+    private final int version;
+    private final Map<Integer, LevelDefinition> cache = new LinkedHashMap<Integer, LevelDefinition>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, LevelDefinition> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    private LevelPack(byte[] compiled) throws IOException {
+        data = ByteBuffer.wrap(compiled);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(compiled));
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a level pack");
+        }
+        version = in.readUnsignedByte();
+        if (version < 1 || version > VERSION) {
+            throw new IOException("Unsupported level pack version " + version);
+        }
+        int count = in.readInt();
+        ids = new int[count];
+        names = new String[count];
+        types = new LevelDefinition.Type[count];
+        offsets = new int[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = in.readInt();
+            int type = in.readUnsignedByte();
+            if (type >= LevelDefinition.Type.values().length) {
+                throw new IOException("Level " + ids[i] + ": unknown type " + type + " in level pack");
+            }
+            types[i] = LevelDefinition.Type.values()[type];
+            offsets[i] = in.readInt();
+            names[i] = in.readUTF();
+        }
+    }
+
+    // The game's level pack: -Dbounce.levels=<file> (.txt or .bin) if set,
+    // otherwise levels.bin or levels.txt from the classpath
+    public static synchronized LevelPack getDefault() {
+        if (defaultPack == null) {
+            try {
+                defaultPack = loadDefault();
+            } catch (IOException e) {
+                e.printStackTrace();
+                defaultPack = empty();
+            }
+        }
+        return defaultPack;
+    }
+
+    private static LevelPack loadDefault() throws IOException {
+        String path = System.getProperty("bounce.levels");
+        if (path != null) {
+            return load(new File(path));
+        }
+        try (InputStream in = LevelPack.class.getResourceAsStream("/levels.bin")) {
+            if (in != null) {
+                return new LevelPack(in.readAllBytes());
+            }
+        }
+        try (InputStream in = LevelPack.class.getResourceAsStream("/levels.txt")) {
+            if (in != null) {
+                return new LevelPack(compile(new InputStreamReader(in, StandardCharsets.UTF_8)));
+            }
+        }
+        return load(new File("levels.txt"));
+    }
+
+    public static LevelPack load(File file) throws IOException {
+        if (file.getName().endsWith(".txt")) {
+            try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+                return new LevelPack(compile(reader));
+            }
+        }
+        return new LevelPack(Files.readAllBytes(file.toPath()));
+    }
+
+    private static LevelPack empty() {
+        try {
+            return new LevelPack(compile(new StringReader("")));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // Can't happen for an empty pack
+        }
+    }
+
+    // Parse the text format and produce the binary pack
+    public static byte[] compile(Reader text) throws IOException {
+        TreeMap<Integer, String[]> levels = new TreeMap<>();
+        BufferedReader reader = new BufferedReader(text);
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] fields = line.split("\\|");
+            if (fields.length != 7 && fields.length != 8) {
+                throw new IOException("Line " + lineNumber + ": expected 7 or 8 fields, found " + fields.length);
+            }
+            for (int i = 0; i < fields.length; i++) {
+                fields[i] = fields[i].trim();
+            }
+            // The numbers are stored as shorts, and a level has to be playable
+            for (int i = 3; i < fields.length; i++) {
+                try {
+                    int value = Integer.parseInt(fields[i]);
+                    if (value < MIN_VALUES[i] || value > maxValue(i)) {
+                        throw new IOException("Line " + lineNumber + ": " + FIELDS[i] + " " + value + " is out of range ("
+                                + MIN_VALUES[i] + ".." + maxValue(i) + ")");
+                    }
+                } catch (NumberFormatException e) {
+                    throw new IOException("Line " + lineNumber + ": bad " + FIELDS[i] + " " + fields[i]);
+                }
+            }
+            try {
+                if (levels.put(Integer.parseInt(fields[0]), fields) != null) {
+                    throw new IOException("Line " + lineNumber + ": duplicate level " + fields[0]);
+                }
+            } catch (NumberFormatException e) {
+                throw new IOException("Line " + lineNumber + ": bad level id " + fields[0]);
+            }
+        }
+
+        ByteArrayOutputStream records = new ByteArrayOutputStream();
+        DataOutputStream recordOut = new DataOutputStream(records);
+        List<Integer> recordOffsets = new ArrayList<>();
+        List<LevelDefinition.Type> types = new ArrayList<>();
+        for (String[] fields : levels.values()) {
+            try {
+                types.add(LevelDefinition.Type.valueOf(fields[2].toUpperCase(Locale.ROOT)));
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Level " + fields[0] + ": unknown type " + fields[2]);
+            }
+            recordOffsets.add(records.size());
+            for (int i = 3; i < 7; i++) {
+                recordOut.writeShort(Integer.parseInt(fields[i])); // Checked while reading
+            }
+            recordOut.writeShort(fields.length > 7 ? Integer.parseInt(fields[7]) : 0); // powerUps is optional
+        }
+
+        // Record offsets are absolute, so measure the index before writing it for real
+        int headerSize = 9 + writeIndex(levels.values(), types, recordOffsets, 0).length;
+        byte[] index = writeIndex(levels.values(), types, recordOffsets, headerSize);
+
+        ByteArrayOutputStream pack = new ByteArrayOutputStream(headerSize + records.size());
+        DataOutputStream out = new DataOutputStream(pack);
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeInt(levels.size());
+        out.write(index);
+        records.writeTo(out);
+        out.flush();
+        return pack.toByteArray();
+    }
+
+    // Largest value a numeric field may have: paddles and rows of balloons
+    // must fit the screen, powerUps is a percentage, the rest fit a short
+    private static int maxValue(int field) {
+        switch (FIELDS[field]) {
+            case "paddleWidth":
+                return GameSimulation.SCREEN_WIDTH;
+            case "columns":
+                MapGenerator layout = new MapGenerator();
+                int columns = 1;
+                while (layout.layoutWidth(columns + 1) <= GameSimulation.SCREEN_WIDTH) {
+                    columns++;
+                }
+                return columns;
+            case "powerUps":
+                return 100;
+            default:
+                return Short.MAX_VALUE;
+        }
+    }
+
+    private static byte[] writeIndex(Collection<String[]> levels, List<LevelDefinition.Type> types,
+                                     List<Integer> recordOffsets, int recordsStart) throws IOException {
+        ByteArrayOutputStream index = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(index);
+        int i = 0;
+        for (String[] fields : levels) {
+            out.writeInt(Integer.parseInt(fields[0]));
+            out.writeByte(types.get(i).ordinal());
+            out.writeInt(recordsStart + recordOffsets.get(i));
+            out.writeUTF(fields[1]);
+            i++;
+        }
+        out.flush();
+        return index.toByteArray();
+    }
+
+    // Level ids in order
+    public int[] getLevelIds() {
+        return ids.clone();
+    }
+
+    public boolean contains(int id) {
+        return Arrays.binarySearch(ids, id) >= 0;
+    }
+
+    // Menu label, e.g. "Level 2 - Medium" or "Endless"
+    public String getTitle(int id) {
+        return isEndless(id) ? getName(id) : "Level " + id + " - " + getName(id);
+    }
+
+    public String getName(int id) {
+        int i = Arrays.binarySearch(ids, id);
+        return i >= 0 ? names[i] : "Level " + id;
+    }
+
+    public boolean isEndless(int id) {
+        int i = Arrays.binarySearch(ids, id);
+        return i >= 0 && types[i] == LevelDefinition.Type.ENDLESS;
+    }
+
+    // The level to offer after finishing this one: the next grid level by id,
+    // or -1 (also for endless levels, which are never finished)
+    public int nextLevel(int id) {
+        int i = Arrays.binarySearch(ids, id);
+        if (i >= 0 && types[i] == LevelDefinition.Type.ENDLESS) {
+            return -1;
+        }
+        for (i = i >= 0 ? i + 1 : -i - 1; i < ids.length; i++) {
+            if (types[i] == LevelDefinition.Type.GRID) {
+                return ids[i];
+            }
+        }
+        return -1;
+    }
+
+    // The level's parameters, or null if the pack doesn't have it
+    public synchronized LevelDefinition get(int id) {
+        LevelDefinition level = cache.get(id);
+        if (level == null) {
+            int i = Arrays.binarySearch(ids, id);
+            if (i < 0) {
+                return null;
+            }
+            int offset = offsets[i];
+            level = new LevelDefinition(id, names[i], types[i], data.getShort(offset), data.getShort(offset + 2),
+                    data.getShort(offset + 4), data.getShort(offset + 6), version >= 2 ? data.getShort(offset + 8) : 0);
+            cache.put(id, level);
+        }
+        return level;
+    }
+
+    // Compile a text pack: java LevelPack levels.txt levels.bin
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: java LevelPack <levels.txt> <levels.bin>");
+            System.exit(2);
+        }
+        byte[] compiled;
+        try (Reader reader = new InputStreamReader(new FileInputStream(args[0]), StandardCharsets.UTF_8)) {
+            compiled = compile(reader);
+        }
+        File output = new File(args[1]);
+        if (output.getParentFile() != null) {
+            output.getParentFile().mkdirs();
+        }
+        Files.write(output.toPath(), compiled);
+        System.out.println("Compiled " + new LevelPack(compiled).ids.length + " levels into " + output + " (" + compiled.length + " bytes)");
+    }
+}
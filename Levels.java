@@ -1,5 +1,62 @@
 import javax.swing.*;
-import java.awt.GridLayout;
+import java.awt.BorderLayout;
+import java.awt.event.ActionEvent;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.function.IntConsumer;
+
+// Scrollable list of the levels in a pack. Only the pack's index (ids and
+// names) is used, so it opens instantly however many levels there are.
+// Double-click or Enter starts the selected level.
+class LevelList extends JList<String> {
+    private final int[] levelIds;
+    private final IntConsumer onStart;
+
+    LevelList(LevelPack pack, IntConsumer onStart) {
+        this.levelIds = pack.getLevelIds();
+        this.onStart = onStart;
+        setModel(new AbstractListModel<String>() {
+            @Override
+            public int getSize() {
+                return levelIds.length;
+            }
+
+            @Override
+            public String getElementAt(int index) {
+                return pack.getTitle(levelIds[index]);
+            }
+        });
+        setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        setFont(getFont().deriveFont(18f));
+        if (levelIds.length > 0) {
+            setSelectedIndex(0);
+        }
+
+        addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                if (e.getClickCount() == 2) {
+                    startSelected();
+                }
+            }
+        });
+        getInputMap().put(KeyStroke.getKeyStroke(KeyEvent.VK_ENTER, 0), "startLevel");
+        getActionMap().put("startLevel", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                startSelected();
+            }
+        });
+    }
+
+    void startSelected() {
+        int index = getSelectedIndex();
+        if (index >= 0) {
+            onStart.accept(levelIds[index]);
+        }
+    }
+}
 
 
 class MainMenu extends JFrame {
@@ -14,20 +71,15 @@ class MainMenu extends JFrame {
         setTitle("Bounce & Burst - Main Menu");
         setSize(400, 300);
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-        setLayout(new GridLayout(4, 1));
-
-        JButton level1Button = new JButton("Level 1");
-        JButton level2Button = new JButton("Level 2");
-        JButton level3Button = new JButton("Level 3");
+        setLayout(new BorderLayout());
 
-        // Add action listeners
-        level1Button.addActionListener(e -> startLevel(1));
-        level2Button.addActionListener(e -> checkAndStartLevel(2));
-        level3Button.addActionListener(e -> checkAndStartLevel(3));
+        // One entry per level in the pack; levels past maxUnlockedLevel stay locked
+        LevelList levelList = new LevelList(LevelPack.getDefault(), this::checkAndStartLevel);
+        add(new JScrollPane(levelList), BorderLayout.CENTER);
 
-        add(level1Button);
-        add(level2Button);
-        add(level3Button);
+        JButton playButton = new JButton("Play");
+        playButton.addActionListener(e -> levelList.startSelected());
+        add(playButton, BorderLayout.SOUTH);
 
         setLocationRelativeTo(null);
         setVisible(true);
@@ -35,7 +87,7 @@ class MainMenu extends JFrame {
 
     private void startLevel(int level) {
         dispose(); // Close the menu window
-        JFrame gameFrame = new JFrame("Bounce & Burst - Level " + level);
+        JFrame gameFrame = new JFrame("Bounce & Burst - " + LevelPack.getDefault().getTitle(level));
         GamePlay gamePlay = new GamePlay(username, scoreboard, level);
         gameFrame.add(gamePlay);
         gameFrame.setSize(600, 600);
@@ -45,7 +97,7 @@ class MainMenu extends JFrame {
     }
 
     private void checkAndStartLevel(int level) {
-        if (level <= maxUnlockedLevel) {
+        if (level <= maxUnlockedLevel || LevelPack.getDefault().isEndless(level)) {
             startLevel(level);
         } else {
             JOptionPane.showMessageDialog(
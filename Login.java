@@ -64,20 +64,7 @@ class LoginScreen extends JPanel {
     protected void paintComponent(Graphics g) {
         super.paintComponent(g);
 
-        // Load and draw the background image
-        Image backgroundImage = getImage("/enter.png"); // Use relative path for portability
-        if (backgroundImage != null) {
-            g.drawImage(backgroundImage, 0, 0, getWidth(), getHeight(), this); // Scale the image to fit the panel
-        }
-    }
-
-    // Utility method to load images using class resources
-    private Image getImage(String imagePath) {
-        try {
-            return new ImageIcon(getClass().getResource(imagePath)).getImage();
-        } catch (Exception e) {
-            System.err.println("Error loading image: " + imagePath);
-            return null;
-        }
+        // Draw the background image, decoded and scaled to fit the panel once by ImageAssets
+        ImageAssets.drawScaled(g, "/enter.png", getWidth(), getHeight(), this);
     }
 }
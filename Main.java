@@ -1,7 +1,7 @@
 
 public class Main {
     public static void main(String[] args) {
-        new GameLauncher().setVisible(true);
+        Startup.launch(); // Shows the launcher on the event thread, then warms up the game
     }
 
 }
@@ -1,69 +1,417 @@
 import java.awt.*;
-import java.util.ArrayList;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.BitSet;
 
+// Balloon map stored as parallel primitive arrays (struct-of-arrays). A
+// balloon is just an id into these arrays; popping it clears its alive bit
+// instead of shifting anything, so ids stay stable for the collision grid.
 public class MapGenerator {
-    public ArrayList<Balloon> balloons;
     public final int BALLOON_WIDTH = 30;
     public final int BALLOON_HEIGHT = 40;
+    private final int GAP_X = 10;
+    private final int GAP_Y = 20;
+    // Colour of a balloon by the hits it has left (1, 2, 3 or more)
+    public static final Color[] HIT_COLORS = {Color.YELLOW, Color.ORANGE, Color.RED};
+
+    private int[] balloonX = new int[16];
+    private int[] balloonY = new int[16];
+    private int[] balloonColor = new int[16]; // Index into palette
+    private int[] balloonHits = new int[16];  // Hits left before the balloon pops
+    private final BitSet alive = new BitSet();
+    private int count;     // Ids handed out so far; ids of popped balloons are reused
+    private int remaining; // Balloons not popped yet
+
+    private Color[] palette = new Color[4];
+    private BufferedImage[] sprites = new BufferedImage[4]; // Pre-rendered balloon per palette entry
+    private int paletteSize;
+
+    // All live balloons pre-composited onto the black background, so a frame
+    // draws the map with one opaque blit. Only the areas in layerDirty are redrawn.
+    private BufferedImage layer;
+    private final Rectangle layerDirty = new Rectangle(0, 0, -1, -1);
+    private final Rectangle changed = new Rectangle(0, 0, -1, -1); // Changed since takeChangedArea()
+
+    private BalloonGrid grid; // null until the first balloon is placed
 
     public MapGenerator(int rows, int cols) {
-        balloons = new ArrayList<>();
         initBalloons(rows, cols);
     }
 
+    // Empty map for custom layouts, filled with addBalloon(). The grid is
+    // built around the balloons as they are added.
+    public MapGenerator() {
+    }
+
     private void initBalloons(int rows, int cols) {
-        int gapX = 10;
-        int gapY = 20;
+        int gapX = GAP_X;
+        int gapY = GAP_Y;
 
         // Calculate the total width of the balloons layout
-        int totalWidth = cols * BALLOON_WIDTH + (cols - 1) * gapX;
+        int totalWidth = layoutWidth(cols);
         int startX = (600 - totalWidth) / 2; // Center balloons horizontally on a 600px screen
         int startY = 50; // Starting y-position for the balloons
 
+        // One grid cell per balloon slot, starting at the first balloon
+        grid = new BalloonGrid(startX, startY, cols * (BALLOON_WIDTH + gapX), rows * (BALLOON_HEIGHT + gapY),
+                BALLOON_WIDTH + gapX, BALLOON_HEIGHT + gapY);
+
         for (int row = 0; row < rows; row++) {
             for (int col = 0; col < cols; col++) {
                 int x = startX + col * (BALLOON_WIDTH + gapX);
                 int y = startY + row * (BALLOON_HEIGHT + gapY);
-                balloons.add(new Balloon(x, y, Color.YELLOW));
+                addBalloon(x, y, Color.YELLOW);
+            }
+        }
+    }
+
+    // Width of a row of cols balloons in the built-in layout
+    public int layoutWidth(int cols) {
+        return cols * BALLOON_WIDTH + (cols - 1) * GAP_X;
+    }
+
+    public int addBalloon(int x, int y, Color color) {
+        return addBalloon(x, y, color, 1);
+    }
+
+    // A balloon that takes several hits to pop. The lowest free id is used,
+    // so maps that keep adding balloons (streamed chunks) stay compact.
+    public int addBalloon(int x, int y, Color color, int hits) {
+        int id = alive.nextClearBit(0);
+        if (id == count) {
+            ensureCapacity(count + 1);
+            count++;
+        }
+        place(id, x, y, paletteIndex(color), Math.max(1, hits));
+        return id;
+    }
+
+    private void place(int id, int x, int y, int color, int hits) {
+        balloonX[id] = x;
+        balloonY[id] = y;
+        balloonColor[id] = color;
+        balloonHits[id] = hits;
+        if (grid == null || !grid.covers(x, y, BALLOON_WIDTH, BALLOON_HEIGHT)) {
+            growGrid(x, y);
+        }
+        grid.insert(id, x, y, BALLOON_WIDTH, BALLOON_HEIGHT);
+        alive.set(id);
+        remaining++;
+        markChanged(id);
+    }
+
+    // Rebuild the grid so it also covers a balloon at (x, y). Cells stay one
+    // layout slot big and on the pitch of the first balloon placed, and the
+    // grid at least doubles in the direction it grows, so a map filled one
+    // balloon at a time is only rebuilt a few times.
+    private void growGrid(int x, int y) {
+        int cellWidth = BALLOON_WIDTH + GAP_X;
+        int cellHeight = BALLOON_HEIGHT + GAP_Y;
+        int left = x, top = y, right = x + cellWidth, bottom = y + cellHeight;
+        if (grid != null) {
+            int width = grid.getRight() - grid.getLeft();
+            int height = grid.getBottom() - grid.getTop();
+            left = x < grid.getLeft() ? Math.min(x, grid.getLeft() - width) : grid.getLeft();
+            top = y < grid.getTop() ? Math.min(y, grid.getTop() - height) : grid.getTop();
+            right = x + BALLOON_WIDTH > grid.getRight() ? Math.max(x + BALLOON_WIDTH, grid.getRight() + width) : grid.getRight();
+            bottom = y + BALLOON_HEIGHT > grid.getBottom() ? Math.max(y + BALLOON_HEIGHT, grid.getBottom() + height) : grid.getBottom();
+            left = grid.getLeft() + Math.floorDiv(left - grid.getLeft(), cellWidth) * cellWidth;
+            top = grid.getTop() + Math.floorDiv(top - grid.getTop(), cellHeight) * cellHeight;
+        }
+        grid = new BalloonGrid(left, top, right - left, bottom - top, cellWidth, cellHeight);
+        for (int id = alive.nextSetBit(0); id >= 0; id = alive.nextSetBit(id + 1)) {
+            grid.insert(id, balloonX[id], balloonY[id], BALLOON_WIDTH, BALLOON_HEIGHT);
+        }
+    }
+
+    private void ensureCapacity(int size) {
+        if (size > balloonX.length) {
+            int capacity = Math.max(size, balloonX.length * 2);
+            balloonX = Arrays.copyOf(balloonX, capacity);
+            balloonY = Arrays.copyOf(balloonY, capacity);
+            balloonColor = Arrays.copyOf(balloonColor, capacity);
+            balloonHits = Arrays.copyOf(balloonHits, capacity);
+        }
+    }
+
+    // Copy the balloons into a snapshot, reusing its arrays
+    void save(GameSnapshot snapshot) {
+        snapshot.ensureBalloons(count);
+        System.arraycopy(balloonX, 0, snapshot.balloonX, 0, count);
+        System.arraycopy(balloonY, 0, snapshot.balloonY, 0, count);
+        System.arraycopy(balloonHits, 0, snapshot.balloonHits, 0, count);
+        for (int id = 0; id < count; id++) {
+            snapshot.balloonColor[id] = palette[balloonColor[id]].getRGB();
+        }
+        snapshot.balloonCount = count;
+        snapshot.alive.clear();
+        snapshot.alive.or(alive);
+        snapshot.layout = true;
+    }
+
+    // Put the balloons back as they were in the snapshot. Ids stay the same,
+    // and only balloons that differ are touched, so the layer just redraws
+    // those. A snapshot without a layout (a saved grid level) keeps this
+    // map's positions, so it must be restored into a freshly built map.
+    void restore(GameSnapshot snapshot) {
+        int restored = snapshot.balloonCount;
+        if (!snapshot.layout && restored != count) {
+            throw new IllegalArgumentException("Snapshot has " + restored + " balloons, map has " + count);
+        }
+        for (int id = alive.nextSetBit(0); id >= 0; id = alive.nextSetBit(id + 1)) {
+            boolean moved = snapshot.layout && id < restored
+                    && (balloonX[id] != snapshot.balloonX[id] || balloonY[id] != snapshot.balloonY[id]);
+            if (!snapshot.alive.get(id) || moved) {
+                removeBalloon(id);
+            }
+        }
+        ensureCapacity(restored);
+        count = restored;
+        for (int id = snapshot.alive.nextSetBit(0); id >= 0; id = snapshot.alive.nextSetBit(id + 1)) {
+            int hits = snapshot.balloonHits[id];
+            int color;
+            if (snapshot.layout) {
+                color = paletteIndex(snapshot.balloonColor[id]);
+            } else {
+                // Same rule as hitBalloon(): the colour only changes once a balloon has been hit
+                color = hits == balloonHits[id] ? balloonColor[id]
+                        : paletteIndex(HIT_COLORS[Math.min(hits, HIT_COLORS.length) - 1]);
+            }
+            if (!alive.get(id)) {
+                place(id, snapshot.balloonX[id], snapshot.balloonY[id], color, hits);
+            } else if (balloonHits[id] != hits || balloonColor[id] != color) {
+                balloonHits[id] = hits;
+                balloonColor[id] = color;
+                markChanged(id);
+            }
+        }
+    }
+
+    // Maps only use a few colours, so they are shared through a tiny palette
+    private int paletteIndex(Color color) {
+        for (int i = 0; i < paletteSize; i++) {
+            if (palette[i].equals(color)) {
+                return i;
+            }
+        }
+        if (paletteSize == palette.length) {
+            palette = Arrays.copyOf(palette, paletteSize * 2);
+            sprites = Arrays.copyOf(sprites, paletteSize * 2);
+        }
+        palette[paletteSize] = color;
+        return paletteSize++;
+    }
+
+    // Same for a colour stored as ARGB; only a colour new to the map allocates
+    private int paletteIndex(int argb) {
+        for (int i = 0; i < paletteSize; i++) {
+            if (palette[i].getRGB() == argb) {
+                return i;
             }
         }
+        return paletteIndex(new Color(argb, true));
     }
 
-    public ArrayList<Balloon> getBalloons() {
-        return balloons;
+    // Iteration over live balloons without allocating:
+    // for (int id = map.nextBalloon(0); id >= 0; id = map.nextBalloon(id + 1)) { ... }
+    public int nextBalloon(int fromId) {
+        return alive.nextSetBit(fromId);
     }
 
+    public boolean isAlive(int id) {
+        return alive.get(id);
+    }
+
+    public int getX(int id) {
+        return balloonX[id];
+    }
+
+    public int getY(int id) {
+        return balloonY[id];
+    }
+
+    public Color getColor(int id) {
+        return palette[balloonColor[id]];
+    }
+
+    public int getHits(int id) {
+        return balloonHits[id];
+    }
+
+    // Number of ids handed out so far, including popped balloons
+    public int getBalloonCount() {
+        return count;
+    }
+
+    public int getRemainingCount() {
+        return remaining;
+    }
+
+    public boolean isCleared() {
+        return remaining == 0;
+    }
+
+    // Lowest id of a live balloon overlapping the given box, or -1. Only the
+    // grid cells under the box are checked and nothing is allocated.
+    public int findCollision(int x, int y, int width, int height) {
+        if (grid == null || !grid.overlaps(x, y, width, height)) {
+            return -1; // Every balloon is inside the grid
+        }
+        int minCol = grid.column(x), maxCol = grid.column(x + width - 1);
+        int minRow = grid.row(y), maxRow = grid.row(y + height - 1);
+        int hit = -1;
+        for (int r = minRow; r <= maxRow; r++) {
+            for (int c = minCol; c <= maxCol; c++) {
+                int size = grid.cellSize(c, r);
+                for (int k = 0; k < size; k++) {
+                    int id = grid.cellBalloon(c, r, k);
+                    if ((hit < 0 || id < hit) && intersects(id, x, y, width, height)) {
+                        hit = id;
+                    }
+                }
+            }
+        }
+        return hit;
+    }
+
+    // Offer the earliest balloon contact for a box moving by (dx, dy) to hit.
+    // Only the grid cells under the swept bounds are checked.
+    public void sweepCollision(double x, double y, int width, int height, double dx, double dy,
+                               SweptCollision.Hit hit) {
+        int left = (int) Math.floor(Math.min(x, x + dx));
+        int right = (int) Math.ceil(Math.max(x, x + dx)) + width;
+        int top = (int) Math.floor(Math.min(y, y + dy));
+        int bottom = (int) Math.ceil(Math.max(y, y + dy)) + height;
+        if (grid == null || !grid.overlaps(left - 1, top - 1, right - left + 2, bottom - top + 2)) {
+            return; // Nowhere near a balloon
+        }
+        int minCol = grid.column(left);
+        int maxCol = grid.column(right);
+        int minRow = grid.row(top);
+        int maxRow = grid.row(bottom);
+        for (int r = minRow; r <= maxRow; r++) {
+            for (int c = minCol; c <= maxCol; c++) {
+                int size = grid.cellSize(c, r);
+                for (int k = 0; k < size; k++) {
+                    int id = grid.cellBalloon(c, r, k);
+                    SweptCollision.sweep(x, y, width, height, dx, dy, balloonX[id], balloonY[id],
+                            BALLOON_WIDTH, BALLOON_HEIGHT, SweptCollision.BALLOON, id, hit);
+                }
+            }
+        }
+    }
+
+    // Same test as Rectangle.intersects without creating a Rectangle
+    public boolean intersects(int id, int x, int y, int width, int height) {
+        int bx = balloonX[id];
+        int by = balloonY[id];
+        return x < bx + BALLOON_WIDTH && bx < x + width
+                && y < by + BALLOON_HEIGHT && by < y + height;
+    }
+
+    // Draws the whole 600x600 map area including its black background, so it
+    // must be drawn before anything that goes on top of it
     public void draw(Graphics g) {
-        for (Balloon balloon : balloons) {
-            balloon.draw(g);
+        if (layer == null) {
+            layer = BalloonSprites.createImage(600, 600, Transparency.OPAQUE);
+            redrawLayer(0, 0, 600, 600);
+        } else if (layerDirty.width >= 0) {
+            redrawLayer(layerDirty.x, layerDirty.y, layerDirty.width, layerDirty.height);
+        }
+        layerDirty.setBounds(0, 0, -1, -1);
+        g.drawImage(layer, 0, 0, null);
+    }
+
+    // Draw the live balloons whose sprite overlaps the given area, in id order
+    public void drawBalloons(Graphics g, int areaX, int areaY, int areaWidth, int areaHeight) {
+        int spriteWidth = BalloonSprites.spriteWidth(BALLOON_WIDTH);
+        int spriteHeight = BalloonSprites.spriteHeight(BALLOON_HEIGHT);
+        for (int id = alive.nextSetBit(0); id >= 0; id = alive.nextSetBit(id + 1)) {
+            int x = balloonX[id];
+            int y = balloonY[id];
+            if (x < areaX + areaWidth && areaX < x + spriteWidth && y < areaY + areaHeight && areaY < y + spriteHeight) {
+                g.drawImage(sprite(balloonColor[id]), x, y, null);
+            }
+        }
+    }
+
+    private void redrawLayer(int x, int y, int width, int height) {
+        Graphics2D g = layer.createGraphics();
+        try {
+            // Clear to the background, then put back the balloons still alive there
+            g.setColor(Color.BLACK);
+            g.fillRect(x, y, width, height);
+            g.clipRect(x, y, width, height);
+            drawBalloons(g, x, y, width, height);
+        } finally {
+            g.dispose();
+        }
+    }
+
+    private BufferedImage sprite(int paletteIndex) {
+        BufferedImage sprite = sprites[paletteIndex];
+        if (sprite == null) {
+            sprite = BalloonSprites.get(palette[paletteIndex], BALLOON_WIDTH, BALLOON_HEIGHT);
+            sprites[paletteIndex] = sprite;
         }
+        return sprite;
     }
 
-    public void removeBalloon(int index) {
-        if (index >= 0 && index < balloons.size()) {
-            balloons.remove(index);
+    // Screen area touched by adds/pops since the last call, for dirty-rectangle
+    // repainting. Returns false if nothing changed.
+    public boolean takeChangedArea(Rectangle out) {
+        if (changed.width < 0) {
+            return false;
         }
+        out.setBounds(changed);
+        changed.setBounds(0, 0, -1, -1);
+        return true;
     }
 
-    class Balloon {
-        int x, y;
-        Color color;
+    private void markChanged(int id) {
+        int x = balloonX[id];
+        int y = balloonY[id];
+        int width = BalloonSprites.spriteWidth(BALLOON_WIDTH);
+        int height = BalloonSprites.spriteHeight(BALLOON_HEIGHT);
+        include(layerDirty, x, y, width, height);
+        include(changed, x, y, width, height);
+    }
 
-        Balloon(int x, int y, Color color) {
-            this.x = x;
-            this.y = y;
-            this.color = color;
+    private static void include(Rectangle area, int x, int y, int width, int height) {
+        if (area.width < 0) {
+            area.setBounds(x, y, width, height);
+        } else {
+            area.add(x, y);
+            area.add(x + width, y + height);
         }
+    }
 
-        public void draw(Graphics g) {
-            g.setColor(color);
-            g.fillOval(x, y, BALLOON_WIDTH, BALLOON_HEIGHT);
-            g.setColor(Color.WHITE);
-            g.drawLine(x + BALLOON_WIDTH / 2, y + BALLOON_HEIGHT, x + BALLOON_WIDTH / 2, y + BALLOON_HEIGHT + 10);
+    // The ball hit the balloon: pop it if this was its last hit, otherwise
+    // show it with the colour for the hits it has left. Returns true if popped.
+    public boolean hitBalloon(int id) {
+        if (id < 0 || id >= count || !alive.get(id)) {
+            return false;
+        }
+        if (--balloonHits[id] <= 0) {
+            removeBalloon(id);
+            return true;
         }
+        balloonColor[id] = paletteIndex(HIT_COLORS[Math.min(balloonHits[id], HIT_COLORS.length) - 1]);
+        markChanged(id);
+        return false;
+    }
 
-        public Rectangle getRect() {
-            return new Rectangle(x, y, BALLOON_WIDTH, BALLOON_HEIGHT); // For collision detection
+    public void removeBalloon(int id) {
+        if (id >= 0 && id < count && alive.get(id)) {
+            alive.clear(id);
+            grid.remove(id, balloonX[id], balloonY[id], BALLOON_WIDTH, BALLOON_HEIGHT);
+            remaining--;
+            markChanged(id);
         }
     }
+
+    public Rectangle getRect(int id) {
+        // For callers that need a shape; the hot paths above don't use it
+        return new Rectangle(balloonX[id], balloonY[id], BALLOON_WIDTH, BALLOON_HEIGHT);
+    }
 }
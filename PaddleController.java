@@ -0,0 +1,7 @@
+// Decides the paddle input for the next tick. The keyboard in GamePlay is
+// the human player; bots (see Bots) implement this to play rounds on their
+// own, through GameSimulation.setController().
+public interface PaddleController {
+    // Add this tick's moves (and launch) to input
+    void control(GameSimulation simulation, GameInput input);
+}
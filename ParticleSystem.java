@@ -0,0 +1,150 @@
+import java.awt.*;
+import java.util.SplittableRandom;
+
+// Burst particles for balloon pops and fireworks. They are only for show, so
+// they live in the view, not in GameSimulation. Every particle is a slot in
+// preallocated parallel arrays and colours are cached per palette entry and
+// fade step, so bursts, updates and drawing never allocate; when the pool is
+// full, new particles take over existing slots in turn.
+//
+// Particles fade by darkening towards the black background rather than by
+// alpha: Java2D fills small translucent rectangles on a slow path that
+// allocates on every call, while opaque fills allocate nothing.
+public class ParticleSystem {
+    private static final int MAX_COLORS = 32;
+    private static final int FADE_STEPS = 8;    // Shades a particle fades through
+    private static final float GRAVITY = 400f;  // Pixels per second squared
+    private static final int SIZE = 3;
+
+    private final float[] x, y, velocityX, velocityY;
+    private final float[] life, lifetime;       // Seconds left and seconds in total
+    private final byte[] color;                 // Index into shades
+    private int count;
+    private int nextReused;                     // Slot to take over when the pool is full
+
+    private final Color[] colors = new Color[MAX_COLORS];
+    private final Color[][] shades = new Color[MAX_COLORS][FADE_STEPS];
+    private int colorCount;
+
+    private final SplittableRandom random = new SplittableRandom();
+    private final Rectangle bounds = new Rectangle(); // Area covered by the particles after update()
+
+    public ParticleSystem(int capacity) {
+        x = new float[capacity];
+        y = new float[capacity];
+        velocityX = new float[capacity];
+        velocityY = new float[capacity];
+        life = new float[capacity];
+        lifetime = new float[capacity];
+        color = new byte[capacity];
+    }
+
+    // Throw n particles out from (centerX, centerY) in all directions, at up to speed pixels per second
+    public void burst(int centerX, int centerY, Color burstColor, int n, float speed) {
+        byte shade = (byte) colorIndex(burstColor);
+        for (int k = 0; k < n; k++) {
+            int i;
+            if (count < x.length) {
+                i = count++;
+            } else {
+                i = nextReused;
+                nextReused = (nextReused + 1) % x.length;
+            }
+            double angle = random.nextDouble() * 2 * Math.PI;
+            float v = speed * (float) (0.2 + 0.8 * random.nextDouble());
+            x[i] = centerX;
+            y[i] = centerY;
+            velocityX[i] = v * (float) Math.cos(angle);
+            velocityY[i] = v * (float) Math.sin(angle);
+            lifetime[i] = life[i] = (float) (0.5 + 0.7 * random.nextDouble());
+            color[i] = shade;
+        }
+        if (bounds.isEmpty()) {
+            bounds.setBounds(centerX, centerY, SIZE + 1, SIZE + 1);
+        } else {
+            bounds.add(centerX, centerY);
+            bounds.add(centerX + SIZE + 1, centerY + SIZE + 1);
+        }
+    }
+
+    public void update(long frameNanos) {
+        float dt = frameNanos / 1e9f;
+        float minX = Float.MAX_VALUE, minY = Float.MAX_VALUE, maxX = -Float.MAX_VALUE, maxY = -Float.MAX_VALUE;
+        for (int i = count - 1; i >= 0; i--) {
+            life[i] -= dt;
+            if (life[i] <= 0) {
+                remove(i);
+                continue;
+            }
+            velocityY[i] += GRAVITY * dt;
+            x[i] += velocityX[i] * dt;
+            y[i] += velocityY[i] * dt;
+            minX = Math.min(minX, x[i]);
+            minY = Math.min(minY, y[i]);
+            maxX = Math.max(maxX, x[i]);
+            maxY = Math.max(maxY, y[i]);
+        }
+        if (count == 0) {
+            bounds.setBounds(0, 0, 0, 0);
+        } else {
+            bounds.setBounds((int) minX, (int) minY, (int) maxX - (int) minX + SIZE + 1, (int) maxY - (int) minY + SIZE + 1);
+        }
+    }
+
+    public void draw(Graphics g) {
+        for (int i = 0; i < count; i++) {
+            int step = Math.min(FADE_STEPS - 1, (int) (life[i] / lifetime[i] * FADE_STEPS));
+            g.setColor(shades[color[i]][step]);
+            g.fillRect((int) x[i], (int) y[i], SIZE, SIZE);
+        }
+    }
+
+    public void clear() {
+        count = 0;
+        nextReused = 0;
+        bounds.setBounds(0, 0, 0, 0);
+    }
+
+    public int size() {
+        return count;
+    }
+
+    // Area to repaint for the particles' current positions (empty when there are none)
+    public Rectangle getBounds() {
+        return bounds;
+    }
+
+    private void remove(int i) {
+        int last = --count;
+        x[i] = x[last];
+        y[i] = y[last];
+        velocityX[i] = velocityX[last];
+        velocityY[i] = velocityY[last];
+        life[i] = life[last];
+        lifetime[i] = lifetime[last];
+        color[i] = color[last];
+        if (nextReused >= count) {
+            nextReused = 0;
+        }
+    }
+
+    // Colours are cached the first time they are used; past MAX_COLORS they
+    // share the first one
+    private int colorIndex(Color c) {
+        for (int i = 0; i < colorCount; i++) {
+            if (colors[i].equals(c)) {
+                return i;
+            }
+        }
+        if (colorCount == MAX_COLORS) {
+            return 0;
+        }
+        colors[colorCount] = c;
+        for (int step = 0; step < FADE_STEPS; step++) {
+            int scale = step + 1;
+            shades[colorCount][step] = new Color(c.getRed() * scale / FADE_STEPS, c.getGreen() * scale / FADE_STEPS,
+                    c.getBlue() * scale / FADE_STEPS);
+        }
+        return colorCount++;
+    }
+}
@@ -0,0 +1,61 @@
+// Power-ups falling towards the paddle, as parallel arrays with a fixed
+// capacity (like BallSet), so drops never allocate during a round.
+public class PowerUpSet {
+    public static final int MULTI_BALL = 0;  // Splits the ball into three
+    public static final int WIDE_PADDLE = 1; // Widens the paddle for a while
+    public static final int TYPE_COUNT = 2;
+    public static final int SIZE = 16;
+
+    final int[] x, y, type;
+    private int count;
+
+    public PowerUpSet(int capacity) {
+        x = new int[capacity];
+        y = new int[capacity];
+        type = new int[capacity];
+    }
+
+    // Drops are skipped while every slot is taken
+    public void add(int powerUpX, int powerUpY, int powerUpType) {
+        if (count < x.length) {
+            x[count] = powerUpX;
+            y[count] = powerUpY;
+            type[count] = powerUpType;
+            count++;
+        }
+    }
+
+    public void remove(int i) {
+        int last = --count;
+        x[i] = x[last];
+        y[i] = y[last];
+        type[i] = type[last];
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public void copyFrom(PowerUpSet other) {
+        count = other.count;
+        System.arraycopy(other.x, 0, x, 0, count);
+        System.arraycopy(other.y, 0, y, 0, count);
+        System.arraycopy(other.type, 0, type, 0, count);
+    }
+
+    public int capacity() {
+        return x.length;
+    }
+
+    public int getX(int i) {
+        return x[i];
+    }
+
+    public int getY(int i) {
+        return y[i];
+    }
+
+    public int getType(int i) {
+        return type[i];
+    }
+}
@@ -0,0 +1,148 @@
+import java.util.SplittableRandom;
+
+// Seeded procedural balloon layouts, generated one chunk (a band of rows) at
+// a time. A chunk depends only on the seed and its index, so the map can be
+// as long as needed: endless mode refills each band the player clears with
+// the next chunk instead of building the whole map up front, and memory
+// stays bounded by what is on screen.
+public class ProceduralMap {
+    private static final int ROWS_PER_CHUNK = 2;
+    private static final int START_Y = 50;   // Same layout as MapGenerator's built-in levels
+    private static final int GAP_X = 10;
+    private static final int GAP_Y = 20;
+    private static final int SPAWN_MARGIN = 40; // Only fill a band while the ball is at least this far below it
+
+    // Layout patterns a chunk can use; density then thins them out
+    private enum Pattern { FULL, CHECKER, STRIPES, DIAMOND, SCATTER }
+
+    private final long seed;
+    private final int columns;
+    private final int[] bandChunk; // Chunk shown in each band, -1 while the band waits to be refilled
+    private int nextChunk;
+    private int checkedRemaining = -1; // Balloon count at the last update(), to skip work when nothing popped
+
+    public ProceduralMap(long seed, int bands, int columns) {
+        this.seed = seed;
+        this.columns = columns;
+        this.bandChunk = new int[bands];
+    }
+
+    // Fill every band, top band first
+    public void start(MapGenerator map) {
+        for (int band = 0; band < bandChunk.length; band++) {
+            generateChunk(map, nextChunk++, band);
+        }
+        checkedRemaining = map.getRemainingCount();
+    }
+
+    // Call after each tick: bands that have been cleared get the next chunk
+    // once every ball is safely below them (ballTop is the highest ball's y)
+    public void update(MapGenerator map, int ballTop) {
+        int remaining = map.getRemainingCount();
+        boolean waiting = false;
+        for (int band = 0; band < bandChunk.length; band++) {
+            if (bandChunk[band] >= 0 && remaining == checkedRemaining) {
+                continue; // Nothing popped since the last check, so this band can't have emptied
+            }
+            int top = bandTop(map, band);
+            int width = columns * map.BALLOON_WIDTH + (columns - 1) * GAP_X;
+            int height = ROWS_PER_CHUNK * (map.BALLOON_HEIGHT + GAP_Y);
+            if (map.findCollision(left(map), top, width, height) >= 0) {
+                continue;
+            }
+            if (ballTop > top + height + SPAWN_MARGIN) {
+                generateChunk(map, nextChunk++, band);
+            } else {
+                bandChunk[band] = -1;
+                waiting = true;
+            }
+        }
+        checkedRemaining = waiting ? -1 : map.getRemainingCount();
+    }
+
+    // Chunks generated so far, i.e. how deep into the map the player is
+    public int getChunkCount() {
+        return nextChunk;
+    }
+
+    // Which chunk each band shows; the balloons themselves are saved by MapGenerator
+    void save(GameSnapshot snapshot) {
+        snapshot.ensureBands(bandChunk.length);
+        System.arraycopy(bandChunk, 0, snapshot.bandChunk, 0, bandChunk.length);
+        snapshot.bands = bandChunk.length;
+        snapshot.nextChunk = nextChunk;
+        snapshot.checkedRemaining = checkedRemaining;
+    }
+
+    void restore(GameSnapshot snapshot) {
+        if (snapshot.bands != bandChunk.length) {
+            throw new IllegalArgumentException("Snapshot has " + snapshot.bands + " bands, map has " + bandChunk.length);
+        }
+        System.arraycopy(snapshot.bandChunk, 0, bandChunk, 0, bandChunk.length);
+        nextChunk = snapshot.nextChunk;
+        checkedRemaining = snapshot.checkedRemaining;
+    }
+
+    private void generateChunk(MapGenerator map, int chunk, int band) {
+        bandChunk[band] = chunk;
+        // Mix the chunk index into the seed so chunks can be made in any order
+        SplittableRandom random = new SplittableRandom(seed ^ (chunk + 1) * 0x9E3779B97F4A7C15L);
+        Pattern pattern = Pattern.values()[random.nextInt(Pattern.values().length)];
+        double density = pattern == Pattern.SCATTER ? density(chunk) * 0.6 : density(chunk);
+        int top = bandTop(map, band);
+        int added = 0;
+
+        for (int row = 0; row < ROWS_PER_CHUNK; row++) {
+            for (int col = 0; col < columns; col++) {
+                boolean last = row == ROWS_PER_CHUNK - 1 && col == columns - 1;
+                if ((inPattern(pattern, row, col) && random.nextDouble() < density) || (last && added == 0)) {
+                    int hits = hits(chunk, random);
+                    map.addBalloon(left(map) + col * (map.BALLOON_WIDTH + GAP_X), top + row * (map.BALLOON_HEIGHT + GAP_Y),
+                            MapGenerator.HIT_COLORS[hits - 1], hits);
+                    added++;
+                }
+            }
+        }
+    }
+
+    // Fraction of pattern slots that get a balloon: starts sparse and
+    // approaches full as the player gets deeper
+    private static double density(int chunk) {
+        return 0.95 - 0.45 * Math.exp(-chunk / 8.0);
+    }
+
+    // Tougher balloons become more common deeper in the map
+    private static int hits(int chunk, SplittableRandom random) {
+        double roll = random.nextDouble();
+        if (roll < Math.min(0.25, chunk * 0.01)) {
+            return 3;
+        }
+        if (roll < Math.min(0.6, chunk * 0.04)) {
+            return 2;
+        }
+        return 1;
+    }
+
+    private boolean inPattern(Pattern pattern, int row, int col) {
+        switch (pattern) {
+            case CHECKER:
+                return (row + col) % 2 == 0;
+            case STRIPES:
+                return col % 2 == 0;
+            case DIAMOND:
+                return Math.abs(col - columns / 2) <= (row == 0 ? 1 : 3);
+            case FULL:
+            case SCATTER:
+            default:
+                return true;
+        }
+    }
+
+    private static int bandTop(MapGenerator map, int band) {
+        return START_Y + band * ROWS_PER_CHUNK * (map.BALLOON_HEIGHT + GAP_Y);
+    }
+
+    private int left(MapGenerator map) {
+        return (GameSimulation.SCREEN_WIDTH - (columns * map.BALLOON_WIDTH + (columns - 1) * GAP_X)) / 2;
+    }
+}
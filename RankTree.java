@@ -0,0 +1,220 @@
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.function.Consumer;
+
+// Order-statistic tree: a treap whose nodes also count their subtree, so on
+// top of add and remove it answers "how many elements come before this one"
+// and "which element is at position i" in O(log n). Elements the comparator
+// calls equal are treated as the same element.
+//
+// Not thread-safe.
+public class RankTree<E> {
+    private static final class Node<E> {
+        final E value;
+        final int priority;
+        int size = 1; // Nodes in this subtree
+        Node<E> left, right;
+
+        Node(E value, int priority) {
+            this.value = value;
+            this.priority = priority;
+        }
+    }
+
+    private final Comparator<? super E> order;
+    private final SplittableRandom random = new SplittableRandom(0x5EEDL); // Priorities only shape the tree
+    private Node<E> root;
+
+    public RankTree(Comparator<? super E> order) {
+        this.order = order;
+    }
+
+    public int size() {
+        return size(root);
+    }
+
+    // Returns false if an equal element is already in the tree
+    public boolean add(E value) {
+        if (contains(value)) {
+            return false;
+        }
+        root = insert(root, new Node<>(value, random.nextInt()));
+        return true;
+    }
+
+    public boolean remove(E value) {
+        int before = size();
+        root = delete(root, value);
+        return size() < before;
+    }
+
+    public boolean contains(E value) {
+        Node<E> node = root;
+        while (node != null) {
+            int c = order.compare(value, node.value);
+            if (c == 0) {
+                return true;
+            }
+            node = c < 0 ? node.left : node.right;
+        }
+        return false;
+    }
+
+    // Number of elements ordered before value, whether or not value is in the tree
+    public int rank(E value) {
+        int rank = 0;
+        Node<E> node = root;
+        while (node != null) {
+            if (order.compare(value, node.value) <= 0) {
+                node = node.left;
+            } else {
+                rank += size(node.left) + 1;
+                node = node.right;
+            }
+        }
+        return rank;
+    }
+
+    // The element at position index (0 = first in order)
+    public E get(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index " + index + " of " + size());
+        }
+        Node<E> node = root;
+        while (true) {
+            int leftSize = size(node.left);
+            if (index < leftSize) {
+                node = node.left;
+            } else if (index == leftSize) {
+                return node.value;
+            } else {
+                index -= leftSize + 1;
+                node = node.right;
+            }
+        }
+    }
+
+    // Up to count elements in order, starting at position from
+    public List<E> range(int from, int count) {
+        int to = (int) Math.min(size(), (long) Math.max(0, from) + Math.max(0, count));
+        List<E> out = new ArrayList<>(Math.max(0, to - from));
+        collect(root, Math.max(0, from), to, out);
+        return out;
+    }
+
+    // Every element, in order
+    public void forEach(Consumer<? super E> action) {
+        forEach(root, action);
+    }
+
+    public void clear() {
+        root = null;
+    }
+
+    private Node<E> insert(Node<E> node, Node<E> added) {
+        if (node == null) {
+            return added;
+        }
+        if (order.compare(added.value, node.value) < 0) {
+            node.left = insert(node.left, added);
+            if (node.left.priority > node.priority) {
+                node = rotateRight(node);
+            }
+        } else {
+            node.right = insert(node.right, added);
+            if (node.right.priority > node.priority) {
+                node = rotateLeft(node);
+            }
+        }
+        update(node);
+        return node;
+    }
+
+    private Node<E> delete(Node<E> node, E value) {
+        if (node == null) {
+            return null;
+        }
+        int c = order.compare(value, node.value);
+        if (c == 0) {
+            return merge(node.left, node.right);
+        }
+        if (c < 0) {
+            node.left = delete(node.left, value);
+        } else {
+            node.right = delete(node.right, value);
+        }
+        update(node);
+        return node;
+    }
+
+    // Join two treaps where everything in a comes before everything in b
+    private Node<E> merge(Node<E> a, Node<E> b) {
+        if (a == null) {
+            return b;
+        }
+        if (b == null) {
+            return a;
+        }
+        if (a.priority > b.priority) {
+            a.right = merge(a.right, b);
+            update(a);
+            return a;
+        }
+        b.left = merge(a, b.left);
+        update(b);
+        return b;
+    }
+
+    private Node<E> rotateRight(Node<E> node) {
+        Node<E> left = node.left;
+        node.left = left.right;
+        update(node);
+        left.right = node;
+        update(left);
+        return left;
+    }
+
+    private Node<E> rotateLeft(Node<E> node) {
+        Node<E> right = node.right;
+        node.right = right.left;
+        update(node);
+        right.left = node;
+        update(right);
+        return right;
+    }
+
+    // Positions [from, to) of the subtree
+    private static <E> void collect(Node<E> node, int from, int to, List<E> out) {
+        if (node == null || from >= to) {
+            return;
+        }
+        int leftSize = size(node.left);
+        if (from < leftSize) {
+            collect(node.left, from, Math.min(to, leftSize), out);
+        }
+        if (from <= leftSize && leftSize < to) {
+            out.add(node.value);
+        }
+        if (to > leftSize + 1) {
+            collect(node.right, Math.max(0, from - leftSize - 1), to - leftSize - 1, out);
+        }
+    }
+
+    private static <E> void forEach(Node<E> node, Consumer<? super E> action) {
+        if (node != null) {
+            forEach(node.left, action);
+            action.accept(node.value);
+            forEach(node.right, action);
+        }
+    }
+
+    private static void update(Node<?> node) {
+        node.size = 1 + size(node.left) + size(node.right);
+    }
+
+    private static int size(Node<?> node) {
+        return node == null ? 0 : node.size;
+    }
+}
@@ -0,0 +1,277 @@
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Per-player rankings over the whole score history. Each player is ranked on
+// a level by their best score (higher first, then faster, then whoever set it
+// first), and across levels by the total of their bests. Both orders are kept
+// in RankTrees, so a player's rank, the player at a rank and a page of the
+// ranking are O(log n) instead of a scan. A level is built from one pass over
+// its records the first time it is needed; add() keeps it current after that,
+// and keeps scores added during the pass aside until the level is installed.
+//
+// Thread-safe. Leaderboards decides when levels are loaded and dropped.
+public class Rankings {
+    // A player's best score on one level, or their total over all levels
+    private static final class Entry {
+        final String username;
+        final long score;
+        final long timeMillis;
+        final long sequence; // Record id of a best score; 0 for totals
+        final int levels;    // Levels a total covers; 1 for a best score
+
+        Entry(String username, long score, long timeMillis, long sequence, int levels) {
+            this.username = username;
+            this.score = score;
+            this.timeMillis = timeMillis;
+            this.sequence = sequence;
+            this.levels = levels;
+        }
+
+        PlayerScore toPlayerScore() {
+            return new PlayerScore(username, (int) Math.min(score, Integer.MAX_VALUE), timeMillis);
+        }
+    }
+
+    private static final Comparator<Entry> BEST = (a, b) -> {
+        int byScore = Long.compare(b.score, a.score);
+        if (byScore != 0) {
+            return byScore;
+        }
+        int byTime = Long.compare(a.timeMillis, b.timeMillis);
+        return byTime != 0 ? byTime : Long.compare(a.sequence, b.sequence);
+    };
+
+    // Equal totals are rare enough that the name decides, so the order is stable
+    private static final Comparator<Entry> TOTAL = (a, b) -> {
+        int byScore = Long.compare(b.score, a.score);
+        if (byScore != 0) {
+            return byScore;
+        }
+        int byTime = Long.compare(a.timeMillis, b.timeMillis);
+        return byTime != 0 ? byTime : a.username.compareTo(b.username);
+    };
+
+    private static final class Level {
+        final Map<String, Entry> best = new HashMap<>();
+        final RankTree<Entry> ranking = new RankTree<>(BEST);
+        long nextSequence; // Record id the next added score gets
+
+        // Keep the score if it is the player's new best; returns whether it was
+        boolean offer(String username, int score, long timeMillis, long sequence) {
+            Entry candidate = new Entry(username, score, timeMillis, sequence, 1);
+            Entry previous = best.get(username);
+            if (previous != null) {
+                if (BEST.compare(candidate, previous) >= 0) {
+                    return false;
+                }
+                ranking.remove(previous);
+            }
+            best.put(username, candidate);
+            ranking.add(candidate);
+            return true;
+        }
+    }
+
+    private final Map<Integer, Level> levels = new HashMap<>();
+    private final Map<Integer, List<Entry>> loading = new HashMap<>(); // Scores added while a level loads, see startLoad()
+    private final Map<String, Entry> totals = new HashMap<>();
+    private final RankTree<Entry> totalRanking = new RankTree<>(TOTAL);
+
+    public synchronized boolean isLoaded(int level) {
+        return levels.containsKey(level);
+    }
+
+    // Claim a level for loading: until load() installs it, add() keeps the
+    // level's scores aside instead of ignoring them. Returns false if the level
+    // is loaded or another thread is loading it (see awaitLoad()).
+    public synchronized boolean startLoad(int level) {
+        if (levels.containsKey(level) || loading.containsKey(level)) {
+            return false;
+        }
+        loading.put(level, new ArrayList<>());
+        return true;
+    }
+
+    // Wait until another thread's load of the level is installed, failed or dropped
+    public synchronized void awaitLoad(int level) throws InterruptedIOException {
+        while (loading.containsKey(level)) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted waiting for the rankings of level " + level);
+            }
+        }
+    }
+
+    // Build a level from every record in the store. The scan runs without
+    // holding this object's lock, so other levels stay queryable meanwhile.
+    // After startLoad(), the scores added during the scan are offered on top;
+    // the scan may have seen some of them already, which changes nothing, as
+    // a copy never beats the same score with a lower sequence.
+    public void load(int level, ScoreStore store) throws IOException {
+        List<Entry> added;
+        synchronized (this) {
+            added = loading.get(level);
+        }
+        Level loaded = new Level();
+        try {
+            store.scan(level, (id, username, score, timeMillis) -> {
+                loaded.offer(username, score, timeMillis, id);
+                loaded.nextSequence = id + 1L;
+            });
+            synchronized (this) {
+                if (added != null) {
+                    if (loading.get(level) != added) {
+                        return; // Dropped while loading, e.g. the file changed, so the scan may be stale
+                    }
+                    loading.remove(level);
+                    for (Entry entry : added) {
+                        loaded.offer(entry.username, (int) entry.score, entry.timeMillis, loaded.nextSequence++);
+                    }
+                }
+                drop(level);
+                levels.put(level, loaded);
+                for (Entry entry : loaded.best.values()) {
+                    changeTotal(entry.username, null, entry);
+                }
+            }
+        } finally {
+            synchronized (this) {
+                if (added != null && loading.get(level) == added) {
+                    loading.remove(level); // Failed
+                }
+                notifyAll();
+            }
+        }
+    }
+
+    // Forget a level, e.g. because its file was changed by another process.
+    // A load in progress is abandoned.
+    public synchronized void drop(int level) {
+        if (loading.remove(level) != null) {
+            notifyAll();
+        }
+        Level removed = levels.remove(level);
+        if (removed != null) {
+            for (Entry entry : removed.best.values()) {
+                changeTotal(entry.username, entry, null);
+            }
+        }
+    }
+
+    // A score that was just submitted to the store; ignored while its level
+    // isn't loaded, kept for load() while it is loading
+    public synchronized void add(int level, String username, int score, long timeMillis) {
+        Level ranked = levels.get(level);
+        if (ranked == null) {
+            List<Entry> added = loading.get(level);
+            if (added != null) {
+                added.add(new Entry(username, score, timeMillis, 0, 1));
+            }
+            return;
+        }
+        Entry previous = ranked.best.get(username);
+        if (ranked.offer(username, score, timeMillis, ranked.nextSequence++)) {
+            changeTotal(username, previous, ranked.best.get(username));
+        }
+    }
+
+    // 1-based place of the player's best score on the level, 0 if they have none
+    public synchronized int rank(int level, String username) {
+        Level ranked = levels.get(level);
+        Entry entry = ranked != null ? ranked.best.get(username) : null;
+        return entry != null ? ranked.ranking.rank(entry) + 1 : 0;
+    }
+
+    // The player's best score on the level, or null
+    public synchronized PlayerScore best(int level, String username) {
+        Level ranked = levels.get(level);
+        Entry entry = ranked != null ? ranked.best.get(username) : null;
+        return entry != null ? entry.toPlayerScore() : null;
+    }
+
+    // Number of players with a score on the level
+    public synchronized int playerCount(int level) {
+        Level ranked = levels.get(level);
+        return ranked != null ? ranked.ranking.size() : 0;
+    }
+
+    // One page of the level's ranking, each player once, best first. Only
+    // names containing nameFilter (case-insensitive, empty = all) count;
+    // filtering walks the whole ranking, the unfiltered page is O(log n + limit).
+    public synchronized ScoreStore.Page best(int level, String nameFilter, int from, int limit) {
+        Level ranked = levels.get(level);
+        if (ranked == null) {
+            return new ScoreStore.Page(new ArrayList<>(), null, 0);
+        }
+        return page(ranked.ranking, nameFilter, from, limit);
+    }
+
+    // One page of the totals over the loaded levels, best first; the time is
+    // the sum of the times of the players' best scores
+    public synchronized ScoreStore.Page totals(String nameFilter, int from, int limit) {
+        return page(totalRanking, nameFilter, from, limit);
+    }
+
+    // 1-based place of the player's total, 0 if they have no scores
+    public synchronized int totalRank(String username) {
+        Entry total = totals.get(username);
+        return total != null ? totalRanking.rank(total) + 1 : 0;
+    }
+
+    private static ScoreStore.Page page(RankTree<Entry> ranking, String nameFilter, int from, int limit) {
+        List<PlayerScore> rows = new ArrayList<>();
+        if (nameFilter == null || nameFilter.isEmpty()) {
+            for (Entry entry : ranking.range(from, limit)) {
+                rows.add(entry.toPlayerScore());
+            }
+            return new ScoreStore.Page(rows, null, ranking.size());
+        }
+        String needle = nameFilter.toLowerCase(Locale.ROOT);
+        int[] matches = new int[1];
+        ranking.forEach(entry -> {
+            if (entry.username.toLowerCase(Locale.ROOT).contains(needle)) {
+                if (matches[0] >= from && rows.size() < limit) {
+                    rows.add(entry.toPlayerScore());
+                }
+                matches[0]++;
+            }
+        });
+        return new ScoreStore.Page(rows, null, matches[0]);
+    }
+
+    // Swap one level's best for another in the player's total; either may be null
+    private void changeTotal(String username, Entry removed, Entry added) {
+        Entry total = totals.get(username);
+        long score = total != null ? total.score : 0;
+        long timeMillis = total != null ? total.timeMillis : 0;
+        int count = total != null ? total.levels : 0;
+        if (removed != null) {
+            score -= removed.score;
+            timeMillis -= removed.timeMillis;
+            count--;
+        }
+        if (added != null) {
+            score += added.score;
+            timeMillis += added.timeMillis;
+            count++;
+        }
+        if (total != null) {
+            totalRanking.remove(total);
+        }
+        if (count > 0) {
+            Entry updated = new Entry(username, score, timeMillis, 0, count);
+            totals.put(username, updated);
+            totalRanking.add(updated);
+        } else {
+            totals.remove(username);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+import java.io.File;
+import java.io.IOException;
+
+// Replays recorded rounds without a display and checks that they end the way
+// they were recorded, e.g. to verify a leaderboard submission. With a repeat
+// count it also reports replay speed, for chasing performance regressions.
+// Usage: java -Djava.awt.headless=true ReplayRunner [-repeat N] <replay file>...
+public class ReplayRunner {
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        int repeats = 1;
+        boolean allMatched = true;
+
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-repeat") && i + 1 < args.length) {
+                repeats = Integer.parseInt(args[++i]);
+                continue;
+            }
+            File file = new File(args[i]);
+            try {
+                InputRecording recording = InputRecording.read(file);
+                GameSimulation simulation = null;
+                long start = System.nanoTime();
+                for (int r = 0; r < repeats; r++) {
+                    simulation = recording.replay();
+                }
+                double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+
+                boolean matched = recording.matches(simulation);
+                allMatched &= matched;
+                System.out.println(file.getName() + ": level " + recording.getLevel() + ", " + recording.getEventCount()
+                        + " inputs, recorded score " + recording.getScore() + " in " + recording.getTickCount() + " ticks -> replayed score "
+                        + simulation.getScore() + " in " + simulation.getTickCount() + " ticks " + (matched ? "OK" : "MISMATCH"));
+                if (repeats > 1) {
+                    System.out.println("  " + repeats + " replays in " + String.format("%.2f", seconds) + "s ("
+                            + String.format("%.0f", repeats * (double) simulation.getTickCount() / seconds) + " ticks/s)");
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+                allMatched = false;
+            }
+        }
+        if (!allMatched) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,608 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Append-only binary score storage, one file per level.
+//
+// scoreboard_level_N.dat: 16-byte header, then fixed 64-byte records
+//   int score | long timeMillis | byte nameLength | name (UTF-8, max 51 bytes)
+// scoreboard_level_N.idx: the ids of the best TOP_K records, so a leaderboard
+//   loads in O(K) no matter how many rows the level has collected.
+//
+// Records are read with positional reads, a block of them at a time when
+// scanning. Paging through the full history uses an in-memory index of every
+// record in the SCORE and TIME orders (12 bytes per record and order, plus
+// the name's id), built with one scan the first time a level is paged and
+// kept current by append(); a page is then a keyset seek plus one read per
+// row. The first time a level is opened, an existing scoreboard_level_N.txt is imported.
+// append() only writes to the OS; commit() syncs data and indexes to disk.
+public class ScoreStore {
+    public static final int TOP_K = 100;
+
+    private static final int MAGIC = 0x424E4253; // "BNBS"
+    private static final int INDEX_MAGIC = 0x424E4249; // "BNBI"
+    private static final int VERSION = 1;
+    private static final int INDEX_VERSION = 2; // Version 1 indexes ranked by score alone and are rebuilt
+    private static final int HEADER_SIZE = 16;
+    private static final int RECORD_SIZE = 64;
+    private static final int MAX_NAME_BYTES = RECORD_SIZE - 13;
+    private static final int RECORDS_PER_READ = 1024; // Records per read when scanning (64 KB)
+
+    // Sort orders for paging through a level's full history. SCORE breaks
+    // ties on time (faster first), then on recording order.
+    public enum Order { SCORE, TIME }
+
+    // Receives every record of a level, see scan()
+    public interface Visitor {
+        void visit(int id, String username, int score, long timeMillis);
+    }
+
+    // Position in a sort order: the sort key and record id of the last row
+    // of a page. Pages are fetched "after" a cursor (keyset paging), so only
+    // one page of rows is ever held in memory.
+    public static class Cursor {
+        final long key;
+        final int id;
+
+        Cursor(long key, int id) {
+            this.key = key;
+            this.id = id;
+        }
+    }
+
+    public static class Page {
+        public final List<PlayerScore> rows;
+        public final Cursor end;     // Pass to page() to get the following page
+        public final int matches;    // Records matching the filter, over all pages
+
+        Page(List<PlayerScore> rows, Cursor end, int matches) {
+            this.rows = rows;
+            this.end = end;
+            this.matches = matches;
+        }
+    }
+
+    private static final int LOCK_STRIPES = 16;
+
+    private final File directory;
+    private final Map<Integer, LevelFile> levels = new ConcurrentHashMap<>();
+    // Each level is guarded by one of these locks, so work on one level never
+    // waits for another (a long page() scan, an import, a commit)
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    public ScoreStore(File directory) {
+        this.directory = directory;
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    public void append(int level, String username, int score, long timeMillis) throws IOException {
+        synchronized (lock(level)) {
+            level(level).appendRecord(username, score, timeMillis);
+        }
+    }
+
+    // Sync appended records to disk and write the indexes of the levels that changed
+    public void commit() throws IOException {
+        for (LevelFile file : levels.values()) {
+            synchronized (lock(file.level)) {
+                file.commit();
+            }
+        }
+    }
+
+    // Best scores of a level, highest first; equal scores go to the faster
+    // time, then keep their recording order
+    public List<PlayerScore> top(int level) throws IOException {
+        synchronized (lock(level)) {
+            return level(level).top();
+        }
+    }
+
+    public int count(int level) throws IOException {
+        synchronized (lock(level)) {
+            return level(level).count;
+        }
+    }
+
+    public PlayerScore read(int level, int id) throws IOException {
+        synchronized (lock(level)) {
+            return level(level).read(id);
+        }
+    }
+
+    // Every record of a level in id (recording) order, in one pass over the file
+    public void scan(int level, Visitor visitor) throws IOException {
+        synchronized (lock(level)) {
+            level(level).scan(visitor);
+        }
+    }
+
+    // Up to limit records of a level in the given order, starting after the
+    // cursor (null = from the start), keeping only names containing
+    // nameFilter (case-insensitive, null or empty = all). O(log n + limit)
+    // once the level's history index is built; a filtered page also skips
+    // the non-matching records after the cursor.
+    public Page page(int level, Order order, String nameFilter, Cursor after, int limit) throws IOException {
+        synchronized (lock(level)) {
+            return level(level).page(order, nameFilter, after, limit);
+        }
+    }
+
+    // Cursor at the end of the level's n best scores in the SCORE order, taken
+    // from the top-K index, so the page after a cached leaderboard page can
+    // be fetched directly. null if n is 0 or more than the index holds.
+    public Cursor topCursor(int level, int n) throws IOException {
+        synchronized (lock(level)) {
+            LevelFile file = level(level);
+            return n > 0 && n <= file.topSize ? new Cursor(file.topKeys[n - 1], file.topIds[n - 1]) : null;
+        }
+    }
+
+    // Called when a level's data file changed on disk. If the file no longer
+    // matches what this store wrote (another process appended to or replaced
+    // it), the level is reopened from disk. Returns true in that case.
+    public boolean reloadIfChanged(int level) throws IOException {
+        synchronized (lock(level)) {
+            LevelFile file = levels.get(level);
+            if (file == null) {
+                return false; // Not open yet; it will be read fresh when needed
+            }
+            long expected = HEADER_SIZE + (long) file.count * RECORD_SIZE;
+            if (file.dataFile.length() == expected) {
+                return false; // Only our own appends
+            }
+            file.commit();
+            file.close();
+            levels.remove(level);
+            return true;
+        }
+    }
+
+    public void close() {
+        for (LevelFile file : levels.values()) {
+            synchronized (lock(file.level)) {
+                try {
+                    file.commit();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+                file.close();
+                levels.remove(file.level);
+            }
+        }
+    }
+
+    private Object lock(int level) {
+        return locks[Math.floorMod(level, LOCK_STRIPES)];
+    }
+
+    // Caller holds the level's lock
+    private LevelFile level(int level) throws IOException {
+        LevelFile file = levels.get(level);
+        if (file == null) {
+            file = new LevelFile(level);
+            levels.put(level, file);
+        }
+        return file;
+    }
+
+    private class LevelFile {
+        private final int level;
+        private final File dataFile;
+        private final File indexFile;
+        private final FileChannel channel;
+        private int count;
+        private boolean dirty; // Appended since the last commit
+
+        // Top-K record ids and their scoreKey(), best first
+        private int[] topIds = new int[TOP_K];
+        private long[] topKeys = new long[TOP_K]; // scoreKey() of each
+        private int topSize;
+
+        private History history; // Built by the first page() call
+
+        LevelFile(int level) throws IOException {
+            this.level = level;
+            this.dataFile = new File(directory, "scoreboard_level_" + level + ".dat");
+            this.indexFile = new File(directory, "scoreboard_level_" + level + ".idx");
+            boolean existed = dataFile.exists();
+            channel = FileChannel.open(dataFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+
+            try {
+                if (!existed || channel.size() < HEADER_SIZE) {
+                    writeHeader();
+                    count = 0;
+                    importText();
+                } else {
+                    checkHeader();
+                    // Ignore a torn record at the end, e.g. after a crash mid-write
+                    count = (int) ((channel.size() - HEADER_SIZE) / RECORD_SIZE);
+                    loadIndex();
+                }
+            } catch (IOException | RuntimeException e) {
+                channel.close(); // Not registered yet, so nothing else would ever close it
+                throw e;
+            }
+        }
+
+        void commit() throws IOException {
+            if (dirty) {
+                channel.force(false);
+                saveIndex(); // Only after the records it points at are durable
+                dirty = false;
+            }
+        }
+
+        void appendRecord(String username, int score, long timeMillis) throws IOException {
+            ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+            byte[] name = encodeName(username);
+            record.putInt(score);
+            record.putLong(timeMillis);
+            record.put((byte) name.length);
+            record.put(name);
+            record.rewind();
+
+            long position = HEADER_SIZE + (long) count * RECORD_SIZE;
+            while (record.hasRemaining()) {
+                channel.write(record, position + record.position());
+            }
+            offerTop(count, scoreKey(score, timeMillis));
+            if (history != null) {
+                history.add(count, new String(name, StandardCharsets.UTF_8), score, timeMillis);
+            }
+            count++;
+            dirty = true;
+        }
+
+        List<PlayerScore> top() throws IOException {
+            List<PlayerScore> scores = new ArrayList<>(topSize);
+            for (int i = 0; i < topSize; i++) {
+                scores.add(read(topIds[i]));
+            }
+            return scores;
+        }
+
+        PlayerScore read(int id) throws IOException {
+            if (id < 0 || id >= count) {
+                throw new IndexOutOfBoundsException("No score " + id + " in level " + level);
+            }
+            ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+            readFully(record, HEADER_SIZE + (long) id * RECORD_SIZE);
+            return new PlayerScore(nameAt(record, 0), record.getInt(0), record.getLong(4));
+        }
+
+        // Reads RECORDS_PER_READ records per call instead of mapping the file
+        void scan(Visitor visitor) throws IOException {
+            ByteBuffer block = ByteBuffer.allocate(RECORDS_PER_READ * RECORD_SIZE);
+            for (int first = 0; first < count; first += RECORDS_PER_READ) {
+                int records = Math.min(RECORDS_PER_READ, count - first);
+                block.clear().limit(records * RECORD_SIZE);
+                readFully(block, HEADER_SIZE + (long) first * RECORD_SIZE);
+                for (int i = 0; i < records; i++) {
+                    int offset = i * RECORD_SIZE;
+                    visitor.visit(first + i, nameAt(block, offset), block.getInt(offset), block.getLong(offset + 4));
+                }
+            }
+        }
+
+        Page page(Order order, String nameFilter, Cursor after, int limit) throws IOException {
+            if (history == null) {
+                History built = new History();
+                scan(built::add);
+                built.byScore.sort();
+                built.byTime.sort();
+                history = built;
+            }
+            SortedKeys index = order == Order.SCORE ? history.byScore : history.byTime;
+            int position = after == null ? 0 : index.seek(after.key, after.id);
+            List<PlayerScore> rows = new ArrayList<>(Math.max(0, Math.min(limit, count - position)));
+            int last = -1; // Index position of the last row
+            int matches;
+            if (nameFilter == null || nameFilter.isEmpty()) {
+                matches = count;
+                for (; position < index.size && rows.size() < limit; position++) {
+                    rows.add(read(index.ids[position]));
+                    last = position;
+                }
+            } else {
+                // Which names match is decided once per name, not once per record
+                String needle = nameFilter.toLowerCase(Locale.ROOT);
+                BitSet matching = new BitSet(history.names.size());
+                matches = 0;
+                for (int name = 0; name < history.names.size(); name++) {
+                    if (history.names.get(name).toLowerCase(Locale.ROOT).contains(needle)) {
+                        matching.set(name);
+                        matches += history.nameCounts[name];
+                    }
+                }
+                for (; position < index.size && rows.size() < limit; position++) {
+                    if (matching.get(history.nameOf[index.ids[position]])) {
+                        rows.add(read(index.ids[position]));
+                        last = position;
+                    }
+                }
+            }
+            Cursor end = last >= 0 ? new Cursor(index.keys[last], index.ids[last]) : after;
+            return new Page(rows, end, matches);
+        }
+
+        // Fill the buffer (from its start) with the bytes at the given file position
+        private void readFully(ByteBuffer buffer, long position) throws IOException {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0) {
+                    throw new EOFException(dataFile + " ends before record at " + position);
+                }
+            }
+        }
+
+        // Name of the record starting at offset in the buffer
+        private String nameAt(ByteBuffer buffer, int offset) {
+            int nameLength = Math.min(buffer.get(offset + 12) & 0xFF, MAX_NAME_BYTES);
+            byte[] name = new byte[nameLength];
+            for (int i = 0; i < nameLength; i++) {
+                name[i] = buffer.get(offset + 13 + i);
+            }
+            return new String(name, StandardCharsets.UTF_8);
+        }
+
+        // Keep the K best ids: higher score first, then faster, then lower id (earlier) first
+        private void offerTop(int id, long key) {
+            if (topSize == TOP_K && key >= topKeys[topSize - 1]) {
+                return;
+            }
+            int position = topSize;
+            while (position > 0 && topKeys[position - 1] > key) {
+                position--;
+            }
+            int moved = Math.min(topSize, TOP_K - 1) - position;
+            if (moved > 0) {
+                System.arraycopy(topIds, position, topIds, position + 1, moved);
+                System.arraycopy(topKeys, position, topKeys, position + 1, moved);
+            }
+            topIds[position] = id;
+            topKeys[position] = key;
+            if (topSize < TOP_K) {
+                topSize++;
+            }
+        }
+
+        private void loadIndex() throws IOException {
+            int covered = 0;
+            if (indexFile.exists()) {
+                try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+                    if (in.readInt() == INDEX_MAGIC && in.readInt() == INDEX_VERSION) {
+                        int indexedCount = in.readInt();
+                        int size = in.readInt();
+                        if (indexedCount <= count && size <= TOP_K) {
+                            for (int i = 0; i < size; i++) {
+                                topIds[i] = in.readInt();
+                                topKeys[i] = in.readLong();
+                            }
+                            topSize = size;
+                            covered = indexedCount;
+                        }
+                    }
+                } catch (EOFException e) {
+                    topSize = 0; // Truncated index: rebuild below
+                    covered = 0;
+                }
+            }
+
+            // Records appended after the index was last written (or all of them)
+            ByteBuffer scoreBuffer = ByteBuffer.allocate(12); // Score and time
+            for (int id = covered; id < count; id++) {
+                scoreBuffer.clear();
+                channel.read(scoreBuffer, HEADER_SIZE + (long) id * RECORD_SIZE);
+                offerTop(id, scoreKey(scoreBuffer.getInt(0), scoreBuffer.getLong(4)));
+            }
+            if (covered < count) {
+                saveIndex();
+            }
+        }
+
+        // Written to a temp file and moved into place so a crash never leaves a half index
+        private void saveIndex() throws IOException {
+            File temp = new File(directory, indexFile.getName() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+                out.writeInt(INDEX_MAGIC);
+                out.writeInt(INDEX_VERSION);
+                out.writeInt(count);
+                out.writeInt(topSize);
+                for (int i = 0; i < topSize; i++) {
+                    out.writeInt(topIds[i]);
+                    out.writeLong(topKeys[i]);
+                }
+            }
+            try {
+                Files.move(temp.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+
+        private void writeHeader() throws IOException {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putInt(RECORD_SIZE).putInt(0).flip();
+            channel.truncate(0);
+            channel.write(header, 0);
+        }
+
+        private void checkHeader() throws IOException {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            channel.read(header, 0);
+            if (header.getInt(0) != MAGIC || header.getInt(8) != RECORD_SIZE) {
+                throw new IOException(dataFile + " is not a scoreboard file");
+            }
+        }
+
+        // One-off import of the old CSV scoreboard (username,score,seconds)
+        private void importText() throws IOException {
+            File textFile = new File(directory, "scoreboard_level_" + level + ".txt");
+            if (textFile.exists()) {
+                try (BufferedReader reader = new BufferedReader(new FileReader(textFile))) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        String[] parts = line.split(",");
+                        if (parts.length == 3) {
+                            try {
+                                appendRecord(parts[0], Integer.parseInt(parts[1]), Long.parseLong(parts[2]) * 1000);
+                            } catch (NumberFormatException e) {
+                                // Skip corrupted rows
+                            }
+                        }
+                    }
+                }
+            }
+            commit();
+        }
+
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    // Every record of a level in the SCORE and TIME orders, and the name each
+    // was recorded under (as an id into names, with a count per name)
+    private static class History {
+        final SortedKeys byScore = new SortedKeys();
+        final SortedKeys byTime = new SortedKeys();
+        final List<String> names = new ArrayList<>();
+        final Map<String, Integer> nameIds = new HashMap<>();
+        int[] nameCounts = new int[16];
+        int[] nameOf = new int[16]; // Per record id
+
+        // Records come in id order: in bulk before sort(), then one at a time as appended
+        void add(int id, String username, int score, long timeMillis) {
+            byScore.add(scoreKey(score, timeMillis), id);
+            byTime.add(timeMillis, id);
+            Integer name = nameIds.get(username);
+            if (name == null) {
+                name = names.size();
+                names.add(username);
+                nameIds.put(username, name);
+                if (name == nameCounts.length) {
+                    nameCounts = Arrays.copyOf(nameCounts, name * 2);
+                }
+            }
+            nameCounts[name]++;
+            if (id >= nameOf.length) {
+                nameOf = Arrays.copyOf(nameOf, Math.max(id + 1, nameOf.length * 2));
+            }
+            nameOf[id] = name;
+        }
+    }
+
+    // (key, id) pairs in ascending order, as parallel primitive arrays. add()
+    // keeps the order once sort() has run; before that it just appends.
+    private static class SortedKeys {
+        long[] keys = new long[16];
+        int[] ids = new int[16];
+        int size;
+        private boolean sorted;
+
+        void add(long key, int id) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            int position = sorted ? seek(key, id) : size;
+            System.arraycopy(keys, position, keys, position + 1, size - position);
+            System.arraycopy(ids, position, ids, position + 1, size - position);
+            keys[position] = key;
+            ids[position] = id;
+            size++;
+        }
+
+        // Position of the first pair after (key, id)
+        int seek(long key, int id) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (compare(keys[mid], ids[mid], key, id) <= 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        // Bottom-up merge sort of the pairs added so far
+        void sort() {
+            long[] keyBuffer = new long[size];
+            int[] idBuffer = new int[size];
+            for (int width = 1; width < size; width *= 2) {
+                for (int from = 0; from < size - width; from += 2 * width) {
+                    int middle = from + width;
+                    int to = Math.min(from + 2 * width, size);
+                    int i = from, j = middle, k = from;
+                    while (i < middle && j < to) {
+                        if (compare(keys[i], ids[i], keys[j], ids[j]) <= 0) {
+                            keyBuffer[k] = keys[i];
+                            idBuffer[k++] = ids[i++];
+                        } else {
+                            keyBuffer[k] = keys[j];
+                            idBuffer[k++] = ids[j++];
+                        }
+                    }
+                    for (; i < middle; k++, i++) {
+                        keyBuffer[k] = keys[i];
+                        idBuffer[k] = ids[i];
+                    }
+                    for (; j < to; k++, j++) {
+                        keyBuffer[k] = keys[j];
+                        idBuffer[k] = ids[j];
+                    }
+                    System.arraycopy(keyBuffer, from, keys, from, to - from);
+                    System.arraycopy(idBuffer, from, ids, from, to - from);
+                }
+            }
+            sorted = true;
+        }
+    }
+
+    // Sort key for the SCORE order: higher score first, then faster. Times
+    // past 2^32 ms (49 days) all count as equally slow.
+    static long scoreKey(int score, long timeMillis) {
+        return (-(long) score << 32) | Math.min(Math.max(timeMillis, 0), 0xFFFFFFFFL);
+    }
+
+    private static int compare(long key, int id, long otherKey, int otherId) {
+        int byKey = Long.compare(key, otherKey);
+        return byKey != 0 ? byKey : Integer.compare(id, otherId);
+    }
+
+    // UTF-8 bytes of the name, cut at a character boundary to fit a record
+    private static byte[] encodeName(String username) {
+        byte[] bytes = username.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length <= MAX_NAME_BYTES) {
+            return bytes;
+        }
+        int length = MAX_NAME_BYTES;
+        while (length > 0 && (bytes[length] & 0xC0) == 0x80) {
+            length--; // Don't split a multi-byte character
+        }
+        byte[] cut = new byte[length];
+        System.arraycopy(bytes, 0, cut, 0, length);
+        return cut;
+    }
+}
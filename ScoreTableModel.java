@@ -0,0 +1,214 @@
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Table model showing one page of a level's score history at a time. The
+// first page of the SCORE view comes from the in-memory leaderboard; the
+// others are keyset seeks into the score store's history index, so open and
+// page times depend on the page size, not on how many scores the level has.
+// The PLAYERS and TOTALS views page through the Rankings by position instead.
+//
+// Pages are fetched on a background thread and shown when they arrive
+// (listeners get a tableChanged event), so the event thread never waits for
+// the disk. Paging is disabled while a page is on its way.
+class ScoreTableModel extends AbstractTableModel {
+    private static final String[] COLUMNS = {"Winner", "Name", "Score", "Time Taken"};
+
+    private static final ExecutorService loader = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "scoreboard-loader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // What the table lists, in the order of the scoreboard's sort box
+    public enum View {
+        SCORE,   // Every score, best first
+        TIME,    // Every score, fastest first
+        PLAYERS, // Each player's best score on the level
+        TOTALS   // Each player's best scores added up over all levels
+    }
+
+    private final Scoreboard scoreboard;
+    private final int level;
+    private final int pageSize;
+
+    private View view = View.SCORE;
+    private String filter = "";
+    private List<PlayerScore> rows = Collections.emptyList();
+    private int pageIndex;
+    private int matches;
+    // pageStarts.get(i) is the cursor page i starts after (null for the first page)
+    private final List<ScoreStore.Cursor> pageStarts = new ArrayList<>();
+    private ScoreStore.Cursor pageEnd;
+    private int generation; // Bumped by every fetch, so only the newest one is shown
+    private boolean loading;
+
+    // A fetched page and the cursor it ends at
+    private static class Loaded {
+        final List<PlayerScore> rows;
+        final int matches;
+        final ScoreStore.Cursor end;
+
+        Loaded(List<PlayerScore> rows, int matches, ScoreStore.Cursor end) {
+            this.rows = rows;
+            this.matches = matches;
+            this.end = end;
+        }
+    }
+
+    public ScoreTableModel(Scoreboard scoreboard, int level, int pageSize) {
+        this.scoreboard = scoreboard;
+        this.level = level;
+        this.pageSize = pageSize;
+        reload();
+    }
+
+    public void setView(View view) {
+        this.view = view;
+        reload();
+    }
+
+    // Show only players whose name contains the text (case-insensitive)
+    public void setFilter(String filter) {
+        this.filter = filter == null ? "" : filter.trim();
+        reload();
+    }
+
+    public void nextPage() {
+        if (!hasNextPage()) {
+            return;
+        }
+        if (isRanking()) {
+            pageIndex++; // Ranking pages are found by position, no cursor needed
+            loadPage();
+            return;
+        }
+        if (pageIndex + 1 == pageStarts.size()) {
+            pageStarts.add(pageEnd);
+        }
+        pageIndex++;
+        loadPage();
+    }
+
+    public void previousPage() {
+        if (pageIndex > 0) {
+            pageIndex--;
+            loadPage();
+        }
+    }
+
+    public boolean hasNextPage() {
+        return !loading && (pageIndex + 1) * pageSize < matches;
+    }
+
+    public boolean hasPreviousPage() {
+        return !loading && pageIndex > 0;
+    }
+
+    public int getPageIndex() {
+        return pageIndex;
+    }
+
+    public int getPageCount() {
+        return Math.max(1, (matches + pageSize - 1) / pageSize);
+    }
+
+    // Top three places are only meaningful on an unfiltered ranking
+    public int getPlace(int row) {
+        if (view != View.TIME && filter.isEmpty() && pageIndex == 0 && row < 3) {
+            return row + 1;
+        }
+        return 0;
+    }
+
+    private void reload() {
+        pageStarts.clear();
+        pageStarts.add(null);
+        pageIndex = 0;
+        loadPage();
+    }
+
+    private boolean isRanking() {
+        return view == View.PLAYERS || view == View.TOTALS;
+    }
+
+    // Fetch the current page in the background and show it once it is there
+    private void loadPage() {
+        int requested = ++generation;
+        loading = true;
+        View view = this.view;
+        String filter = this.filter;
+        int index = pageIndex;
+        ScoreStore.Cursor start = pageStarts.get(index);
+        CompletableFuture.supplyAsync(() -> fetch(view, filter, index, start), loader)
+                .thenAccept(loaded -> SwingUtilities.invokeLater(() -> show(requested, loaded)));
+    }
+
+    // Runs on the loader thread
+    private Loaded fetch(View view, String filter, int index, ScoreStore.Cursor start) {
+        scoreboard.flush(); // Include scores still being written; only this thread waits for that
+        if (view == View.PLAYERS || view == View.TOTALS) {
+            int from = index * pageSize;
+            ScoreStore.Page page = view == View.PLAYERS ? scoreboard.readBestPerPlayer(level, filter, from, pageSize)
+                    : scoreboard.readTotals(filter, from, pageSize);
+            return new Loaded(page.rows, page.matches, null);
+        }
+        if (index == 0 && view == View.SCORE && filter.isEmpty() && pageSize <= ScoreStore.TOP_K) {
+            // The best scores are already in the in-memory leaderboard
+            List<PlayerScore> top = scoreboard.readScores(level);
+            List<PlayerScore> rows = top.subList(0, Math.min(pageSize, top.size()));
+            return new Loaded(rows, scoreboard.countScores(level), scoreboard.topCursor(level, rows.size()));
+        }
+        ScoreStore.Order order = view == View.TIME ? ScoreStore.Order.TIME : ScoreStore.Order.SCORE;
+        ScoreStore.Page page = scoreboard.readPage(level, order, filter, start, pageSize);
+        return new Loaded(page.rows, page.matches, page.end);
+    }
+
+    // Runs on the event thread; results of superseded fetches are dropped
+    private void show(int requested, Loaded loaded) {
+        if (requested != generation) {
+            return;
+        }
+        loading = false;
+        rows = loaded.rows;
+        matches = loaded.matches;
+        pageEnd = loaded.end;
+        fireTableDataChanged();
+    }
+
+    @Override
+    public int getRowCount() {
+        return rows.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        PlayerScore ps = rows.get(row);
+        switch (column) {
+            case 0:
+                int place = getPlace(row);
+                return place == 1 ? "1st" : place == 2 ? "2nd" : place == 3 ? "3rd" : "";
+            case 1:
+                return ps.getUsername();
+            case 2:
+                return ps.getScore();
+            default:
+                return Scoreboard.formatTime(ps.getTimeMillis());
+        }
+    }
+}
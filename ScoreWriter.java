@@ -0,0 +1,138 @@
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+// Background writer for the score store. addScore() only queues the score;
+// this thread appends everything queued within one group-commit interval
+// and then syncs the files to disk once for the whole batch, so the game
+// never waits on the disk.
+public class ScoreWriter implements AutoCloseable {
+
+    private static class PendingScore {
+        final int level;
+        final String username;
+        final int score;
+        final long timeMillis;
+
+        PendingScore(int level, String username, int score, long timeMillis) {
+            this.level = level;
+            this.username = username;
+            this.score = score;
+            this.timeMillis = timeMillis;
+        }
+    }
+
+    private final ScoreStore store;
+    private final long commitIntervalNanos;
+    private final Thread thread;
+
+    private final Object lock = new Object();
+    private final ArrayDeque<PendingScore> pending = new ArrayDeque<>();
+    private long submitted;   // Scores queued so far
+    private long committed;   // Scores appended and synced to disk
+    private boolean flushRequested;
+    private boolean closed;
+
+    public ScoreWriter(ScoreStore store, long commitIntervalMillis) {
+        this.store = store;
+        this.commitIntervalNanos = commitIntervalMillis * 1_000_000L;
+        thread = new Thread(this::run, "score-writer");
+        thread.setDaemon(true); // Shutdown is handled by close(), e.g. from a shutdown hook
+        thread.start();
+    }
+
+    public void submit(int level, String username, int score, long timeMillis) {
+        synchronized (lock) {
+            if (closed) {
+                throw new IllegalStateException("Score writer is closed");
+            }
+            pending.add(new PendingScore(level, username, score, timeMillis));
+            submitted++;
+            lock.notifyAll();
+        }
+    }
+
+    // Commit everything submitted so far without waiting for the rest of the
+    // interval, and block until it is on disk
+    public void flush() {
+        synchronized (lock) {
+            long target = submitted;
+            if (committed == target) {
+                return; // Nothing to wait for; don't cut the next batch's interval short
+            }
+            flushRequested = true;
+            lock.notifyAll();
+            while (committed < target && thread.isAlive()) {
+                try {
+                    lock.wait(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    // Write out whatever is still queued and stop the thread
+    @Override
+    public void close() {
+        synchronized (lock) {
+            closed = true;
+            lock.notifyAll();
+        }
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        List<PendingScore> batch = new ArrayList<>();
+        while (true) {
+            long target;
+            synchronized (lock) {
+                try {
+                    while (pending.isEmpty() && !closed) {
+                        lock.wait();
+                    }
+                    if (pending.isEmpty()) {
+                        break; // Closed and drained
+                    }
+                    // Group commit: let more scores join this batch until the interval ends
+                    long deadline = System.nanoTime() + commitIntervalNanos;
+                    long remaining;
+                    while (!flushRequested && !closed && (remaining = deadline - System.nanoTime()) > 0) {
+                        lock.wait(remaining / 1_000_000L, (int) (remaining % 1_000_000L));
+                    }
+                } catch (InterruptedException e) {
+                    closed = true; // Treat an interrupt like close: drain and stop
+                }
+                flushRequested = false;
+                batch.addAll(pending);
+                pending.clear();
+                target = submitted;
+            }
+
+            for (PendingScore score : batch) {
+                try {
+                    store.append(score.level, score.username, score.score, score.timeMillis);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+            try {
+                store.commit();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            batch.clear();
+
+            synchronized (lock) {
+                committed = target;
+                lock.notifyAll();
+            }
+        }
+    }
+}
@@ -1,18 +1,22 @@
 import javax.swing.*;
+import javax.swing.table.DefaultTableCellRenderer;
 import java.awt.*;
 import java.io.*;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 class PlayerScore {
     private final String username;
     private final int score;
-    private final long time;
+    private final long timeMillis; // Completion time; scores from the old text files are whole seconds
 
-    public PlayerScore(String username, int score, long time) {
+    public PlayerScore(String username, int score, long timeMillis) {
         this.username = username;
         this.score = score;
-        this.time = time;
+        this.timeMillis = timeMillis;
     }
 
     public String getUsername() {
@@ -23,152 +27,367 @@ class PlayerScore {
         return score;
     }
 
+    // Whole seconds
     public long getTime() {
-        return time;
+        return timeMillis / 1000;
+    }
+
+    public long getTimeMillis() {
+        return timeMillis;
     }
 
     @Override
     public String toString() {
-        return "Name: " + username + " | Score: " + score + " | Time: " + time + "s";
+        return "Name: " + username + " | Score: " + score + " | Time: " + Scoreboard.formatTime(timeMillis);
     }
 }
 
 public class Scoreboard {
-    private int currentLevel = 1; // Tracks the current level
-
-    // Add the player's score to the specific level's scoreboard
-    public void addScore(String username, int score, long totalTime) {
-        String fileName = getLevelFileName(currentLevel);
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(fileName, true))) {
-            // Use CSV format to align with readScores parsing
-            writer.write(username + "," + score + "," + totalTime);
-            writer.newLine();
+    private static final long DEFAULT_COMMIT_MILLIS = 200; // Group-commit interval for score writes
+    private static final int PAGE_SIZE = 50; // Rows per scoreboard page
+    private static final Color BACKGROUND = new Color(173, 216, 230); // Light blue
+    private static final Font HEADER_FONT = new Font("Arial", Font.BOLD, 16);
+    private static final Font PLACE_FONT = new Font("Arial", Font.BOLD, 14);
+    private static final Font ROW_FONT = new Font("Arial", Font.PLAIN, 14);
+
+    // The score files of one directory with their writer and cache. Every
+    // Scoreboard opened on the same directory shares one, so concurrent games
+    // append through a single writer and see each other's scores.
+    private static class Storage {
+        final ScoreStore store; // Binary per-level score files in the directory
+        final ScoreWriter writer; // Writes scores off the game threads
+        final Leaderboards leaderboards; // Cached top scores per level
+        final Thread shutdownHook;
+        int users;
+
+        Storage(File directory, long commitIntervalMillis) {
+            store = new ScoreStore(directory);
+            writer = new ScoreWriter(store, commitIntervalMillis);
+            leaderboards = new Leaderboards(directory, store, writer, ScoreStore.TOP_K);
+            // Also covers the System.exit(0) paths in the game and scoreboard screens
+            shutdownHook = new Thread(this::close, "scoreboard-shutdown");
+            Runtime.getRuntime().addShutdownHook(shutdownHook);
+        }
+
+        // Write out pending scores and release the files
+        synchronized void close() {
+            leaderboards.close();
+            writer.close();
+            store.close();
+        }
+    }
+
+    private static final Map<String, Storage> storages = new HashMap<>(); // By canonical directory path
+
+    private final String key;
+    private final Storage storage;
+    private final ScoreStore store;
+    private final ScoreWriter writer;
+    private final Leaderboards leaderboards;
+    private boolean closed;
+
+    public Scoreboard() {
+        this(new File("."));
+    }
+
+    public Scoreboard(File directory) {
+        this(directory, Long.getLong("bounce.scoreCommitMillis", DEFAULT_COMMIT_MILLIS));
+    }
+
+    // The commit interval only applies if this is the first Scoreboard open on the directory
+    public Scoreboard(File directory, long commitIntervalMillis) {
+        String path;
+        try {
+            path = directory.getCanonicalPath();
         } catch (IOException e) {
-            e.printStackTrace();
+            path = directory.getAbsolutePath();
+        }
+        key = path;
+        synchronized (storages) {
+            Storage shared = storages.get(key);
+            if (shared == null) {
+                shared = new Storage(directory, commitIntervalMillis);
+                storages.put(key, shared);
+            }
+            shared.users++;
+            storage = shared;
         }
+        store = storage.store;
+        writer = storage.writer;
+        leaderboards = storage.leaderboards;
     }
 
-    // Read the scores for a specific level
-    private List<PlayerScore> readScores(int level) {
-        List<PlayerScore> scores = new ArrayList<>();
-        String fileName = getLevelFileName(level);
-        try (BufferedReader reader = new BufferedReader(new FileReader(fileName))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts.length == 3) {
-                    String username = parts[0];
-                    int score = Integer.parseInt(parts[1]);
-                    long time = Long.parseLong(parts[2]);
-                    scores.add(new PlayerScore(username, score, time));
-                }
+    // Add the player's score and completion time (e.g. from GameClock) to the
+    // given level's scoreboard. Safe to call from any number of threads; the
+    // write happens on the background writer, so this never blocks on disk I/O.
+    public void addScore(int level, String username, int score, long timeMillis) {
+        leaderboards.add(level, username, score, timeMillis);
+    }
+
+    // Block until every score added so far is on disk
+    public void flush() {
+        writer.flush();
+    }
+
+    // Release this Scoreboard; the files are written out and closed when the
+    // last Scoreboard on the directory is closed
+    public void close() {
+        synchronized (storages) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (--storage.users > 0) {
+                return;
+            }
+            storages.remove(key);
+            try {
+                Runtime.getRuntime().removeShutdownHook(storage.shutdownHook);
+            } catch (IllegalStateException e) {
+                // Already shutting down; the hook closes the storage itself
             }
+        }
+        storage.close();
+    }
+
+    // Read the best scores for a specific level (highest first). Served from the
+    // in-memory leaderboard, so this is constant-time after the first call.
+    List<PlayerScore> readScores(int level) {
+        try {
+            return leaderboards.get(level);
         } catch (IOException e) {
             e.printStackTrace();
+            return new ArrayList<>();
         }
-        scores.sort((a, b) -> b.getScore() - a.getScore()); // Sort scores in descending order
-        return scores;
     }
 
-    // Generate the filename for the current level's scoreboard
-    private String getLevelFileName(int level) {
-        return "scoreboard_level_" + level + ".txt";
+    // Load the level's rankings on a background thread, e.g. when a round
+    // starts, so asking for a rank at its end doesn't read the level's
+    // history. The returned rankings answer rank() and playerCount() from memory.
+    public CompletableFuture<Rankings> loadRankings(int level) {
+        return leaderboards.rankingsAsync(level);
     }
 
-    // Create the panel displaying the scoreboard for a specific level
-    public JPanel getScoreboardPanel(int level, Runnable retryCallback, Runnable nextLevelCallback) {
-        JPanel panel = new JPanel(new BorderLayout());
-        panel.setBackground(new Color(173, 216, 230)); // Light blue background color
-
-        // Create the scoreboard content panel using GridLayout
-        JPanel scorePanel = new JPanel(new GridLayout(0, 4, 5, 5)); // 4 columns: Winner, Name, Score, Time
-        scorePanel.setBackground(new Color(173, 216, 230)); // Light blue background color
-
-        // Add headers to the scoreboard
-        JLabel winnerHeader = new JLabel("Winner", SwingConstants.CENTER);
-        winnerHeader.setFont(new Font("Arial", Font.BOLD, 16));
-        JLabel nameHeader = new JLabel("Name", SwingConstants.CENTER);
-        nameHeader.setFont(new Font("Arial", Font.BOLD, 16));
-        JLabel scoreHeader = new JLabel("Score", SwingConstants.CENTER);
-        scoreHeader.setFont(new Font("Arial", Font.BOLD, 16));
-        JLabel timeHeader = new JLabel("Time Taken", SwingConstants.CENTER);
-        timeHeader.setFont(new Font("Arial", Font.BOLD, 16));
-
-        scorePanel.add(winnerHeader);
-        scorePanel.add(nameHeader);
-        scorePanel.add(scoreHeader);
-        scorePanel.add(timeHeader);
-
-        // Fetch and display the scores for the selected level
-        List<PlayerScore> scores = readScores(level);
-
-        for (int i = 0; i < scores.size(); i++) {
-            PlayerScore ps = scores.get(i);
-
-            // Winner column content
-            JLabel winnerLabel = new JLabel("", SwingConstants.CENTER);
-            winnerLabel.setFont(new Font("Arial", Font.BOLD, 14));
-            if (i == 0) {
-                winnerLabel.setText("1st");
-                winnerLabel.setForeground(Color.magenta); // Dark green color for the first place
-            } else if (i == 1) {
-                winnerLabel.setText("2nd");
-                winnerLabel.setForeground(Color.BLUE); // Blue color for the second place
-            } else if (i == 2) {
-                winnerLabel.setText("3rd");
-                winnerLabel.setForeground(Color.red); // Bronze color for the third place
-            }
+    // Place of the player's best score among everyone's best on the level
+    // (1 = first), or 0 if they have no score there. The first call for a
+    // level reads its history once (see loadRankings); after that this is O(log n).
+    public int getRank(int level, String username) {
+        try {
+            return leaderboards.rankings(level).rank(level, username);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return 0;
+        }
+    }
 
-            JLabel nameLabel = new JLabel(ps.getUsername(), SwingConstants.CENTER);
-            nameLabel.setFont(new Font("Arial", Font.PLAIN, 14));
-            JLabel scoreLabel = new JLabel(String.valueOf(ps.getScore()), SwingConstants.CENTER);
-            scoreLabel.setFont(new Font("Arial", Font.PLAIN, 14));
-            JLabel timeLabel = new JLabel(formatTime(ps.getTime()), SwingConstants.CENTER);
-            timeLabel.setFont(new Font("Arial", Font.PLAIN, 14));
+    // Number of different players with a score on the level
+    public int getPlayerCount(int level) {
+        try {
+            return leaderboards.rankings(level).playerCount(level);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return 0;
+        }
+    }
 
-            scorePanel.add(winnerLabel);
-            scorePanel.add(nameLabel);
-            scorePanel.add(scoreLabel);
-            scorePanel.add(timeLabel);
+    // Place of the player's total over every level in the pack, 0 if they have no scores
+    public int getTotalRank(String username) {
+        try {
+            return leaderboards.rankings(LevelPack.getDefault().getLevelIds()).totalRank(username);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return 0;
         }
+    }
+
+    // One page of a level's ranking with each player's best score only
+    ScoreStore.Page readBestPerPlayer(int level, String nameFilter, int from, int limit) {
+        try {
+            return leaderboards.rankings(level).best(level, nameFilter, from, limit);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return new ScoreStore.Page(new ArrayList<>(), null, 0);
+        }
+    }
+
+    // One page of the players' totals of their best scores over every level in the pack
+    ScoreStore.Page readTotals(String nameFilter, int from, int limit) {
+        try {
+            return leaderboards.rankings(LevelPack.getDefault().getLevelIds()).totals(nameFilter, from, limit);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return new ScoreStore.Page(new ArrayList<>(), null, 0);
+        }
+    }
+
+    // Number of stored scores for a level; call flush() first to include the
+    // ones still being written
+    int countScores(int level) {
+        try {
+            return store.count(level);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return 0;
+        }
+    }
 
-        panel.add(scorePanel, BorderLayout.CENTER);
+    // Read one page of a level's stored score history; only the page is kept in memory
+    ScoreStore.Page readPage(int level, ScoreStore.Order order, String nameFilter, ScoreStore.Cursor after, int limit) {
+        try {
+            return store.page(level, order, nameFilter, after, limit);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return new ScoreStore.Page(new ArrayList<>(), null, 0);
+        }
+    }
+
+    // Cursor after the level's n best scores, i.e. where the page following a
+    // page of readScores() starts; null if unknown
+    ScoreStore.Cursor topCursor(int level, int n) {
+        try {
+            return store.topCursor(level, n);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    // Create the panel displaying the scoreboard for a specific level
+    public JPanel getScoreboardPanel(int level, Runnable retryCallback, Runnable nextLevelCallback) {
+        JPanel panel = new JPanel(new BorderLayout());
+        panel.setBackground(BACKGROUND); // Light blue background color
+
+        // Scores are shown a page at a time, so long histories open instantly
+        ScoreTableModel model = new ScoreTableModel(this, level, PAGE_SIZE);
+
+        // Search and sort controls
+        JPanel searchPanel = new JPanel(new FlowLayout());
+        searchPanel.setBackground(BACKGROUND);
+        JTextField searchField = new JTextField(12);
+        JComboBox<String> sortBox = new JComboBox<>(new String[]{"Best Score", "Fastest Time", "Best per Player", "All Levels"});
+        JButton searchButton = new JButton("Search");
+        searchPanel.add(new JLabel("Player:"));
+        searchPanel.add(searchField);
+        searchPanel.add(searchButton);
+        searchPanel.add(new JLabel("Sort by:"));
+        searchPanel.add(sortBox);
+        panel.add(searchPanel, BorderLayout.NORTH);
+
+        // Scoreboard table: 4 columns: Winner, Name, Score, Time
+        JTable table = new JTable(model);
+        table.setFont(ROW_FONT);
+        table.setRowHeight(22);
+        table.setFillsViewportHeight(true);
+        table.setBackground(BACKGROUND);
+        table.setShowGrid(false);
+        table.getTableHeader().setFont(HEADER_FONT);
+        table.getTableHeader().setReorderingAllowed(false);
+        table.setDefaultRenderer(Object.class, new DefaultTableCellRenderer() {
+            @Override
+            public Component getTableCellRendererComponent(JTable t, Object value, boolean selected,
+                                                           boolean focused, int row, int column) {
+                super.getTableCellRendererComponent(t, value, selected, focused, row, column);
+                setHorizontalAlignment(SwingConstants.CENTER);
+                setFont(ROW_FONT);
+                if (!selected) {
+                    setForeground(Color.BLACK);
+                }
+                if (column == 0) {
+                    setFont(PLACE_FONT);
+                    int place = model.getPlace(row);
+                    if (place == 1) {
+                        setForeground(Color.magenta); // Dark green color for the first place
+                    } else if (place == 2) {
+                        setForeground(Color.BLUE); // Blue color for the second place
+                    } else if (place == 3) {
+                        setForeground(Color.red); // Bronze color for the third place
+                    }
+                }
+                return this;
+            }
+        });
+        JScrollPane scrollPane = new JScrollPane(table);
+        scrollPane.getViewport().setBackground(BACKGROUND);
+        panel.add(scrollPane, BorderLayout.CENTER);
+
+        JPanel southPanel = new JPanel(new GridLayout(2, 1));
+        southPanel.setBackground(BACKGROUND);
+
+        // Page navigation
+        JPanel pagePanel = new JPanel(new FlowLayout());
+        pagePanel.setBackground(BACKGROUND);
+        JButton previousButton = new JButton("< Prev");
+        JLabel pageLabel = new JLabel("", SwingConstants.CENTER);
+        JButton nextButton = new JButton("Next >");
+        pagePanel.add(previousButton);
+        pagePanel.add(pageLabel);
+        pagePanel.add(nextButton);
+        southPanel.add(pagePanel);
+
+        Runnable updatePaging = () -> {
+            pageLabel.setText("Page " + (model.getPageIndex() + 1) + " of " + model.getPageCount());
+            previousButton.setEnabled(model.hasPreviousPage());
+            nextButton.setEnabled(model.hasNextPage());
+        };
+        previousButton.addActionListener(e -> {
+            model.previousPage();
+            updatePaging.run();
+        });
+        nextButton.addActionListener(e -> {
+            model.nextPage();
+            updatePaging.run();
+        });
+        Runnable search = () -> {
+            model.setFilter(searchField.getText());
+            updatePaging.run();
+        };
+        searchButton.addActionListener(e -> search.run());
+        searchField.addActionListener(e -> search.run());
+        sortBox.addActionListener(e -> {
+            model.setView(ScoreTableModel.View.values()[sortBox.getSelectedIndex()]);
+            updatePaging.run();
+        });
+        model.addTableModelListener(e -> updatePaging.run()); // A page arrived
+        updatePaging.run();
 
         // Add buttons for retrying or proceeding to the next level
         JPanel buttonPanel = new JPanel(new FlowLayout());
-        buttonPanel.setBackground(new Color(173, 216, 230)); // Light blue background color
+        buttonPanel.setBackground(BACKGROUND); // Light blue background color
         JButton retryButton = new JButton("Retry Level");
         retryButton.addActionListener(e -> retryCallback.run());
         buttonPanel.add(retryButton);
 
         JButton nextLevelButton = new JButton("Next Level");
-        nextLevelButton.setEnabled(level < 3); // Disable if it's the last level
-        nextLevelButton.addActionListener(e -> {
-            currentLevel++;
-            nextLevelCallback.run();
-        });
+        boolean lastLevel = LevelPack.getDefault().nextLevel(level) < 0;
+        nextLevelButton.setEnabled(!lastLevel); // Disable if it's the last level
+        nextLevelButton.addActionListener(e -> nextLevelCallback.run());
         buttonPanel.add(nextLevelButton);
 
-        // Add "Exit" button for level 3
-        if (level == 3) {
+        // Add "Exit" button for the last level
+        if (lastLevel) {
             JButton exitButton = new JButton("Exit");
             exitButton.addActionListener(e -> System.exit(0)); // Exit the program
             buttonPanel.add(exitButton);
         }
+        southPanel.add(buttonPanel);
 
-        panel.add(buttonPanel, BorderLayout.SOUTH);
+        panel.add(southPanel, BorderLayout.SOUTH);
 
         return panel;
     }
 
-    // Format the time to minutes and seconds for display
-    private String formatTime(long timeInSeconds) {
+    // Format the time to minutes and seconds for display; the milliseconds
+    // are only shown when there are any, so imported whole-second times read as before
+    static String formatTime(long timeMillis) {
+        long timeInSeconds = timeMillis / 1000;
+        long millis = timeMillis % 1000;
+        String fraction = millis != 0 ? String.format(".%03d", millis) : "";
         if (timeInSeconds < 60) {
-            return timeInSeconds + "s";
+            return timeInSeconds + fraction + "s";
         } else {
             long minutes = timeInSeconds / 60;
             long seconds = timeInSeconds % 60;
-            return minutes + " min " + seconds + "s";
+            return minutes + " min " + seconds + fraction + "s";
         }
     }
 
@@ -0,0 +1,72 @@
+// Runs simulated rounds without a display, as fast as the CPU allows.
+// Usage: java -Djava.awt.headless=true SimulationRunner [level] [rounds] [discrete|swept] [ballSpeed] [bot]
+// (bot is follow, predict or human[:reactionTicks:aimError]; see Bots)
+public class SimulationRunner {
+    static final long MAX_TICKS_PER_ROUND = 200_000; // Stop rounds where the ball gets stuck in a loop
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        int level = args.length > 0 ? Integer.parseInt(args[0]) : 1;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+        GameSimulation.CollisionMode mode = args.length > 2
+                ? GameSimulation.CollisionMode.valueOf(args[2].toUpperCase()) : GameSimulation.CollisionMode.DISCRETE;
+        int ballSpeed = args.length > 3 ? Integer.parseInt(args[3]) : 0; // 0 = level default
+        String bot = args.length > 4 ? args[4] : "follow";
+
+        int wins = 0;
+        long totalScore = 0;
+        long totalTicks = 0;
+        long start = System.nanoTime();
+
+        for (int i = 0; i < rounds; i++) {
+            GameSimulation simulation = runRound(level, mode, ballSpeed, Bots.byName(bot, i));
+            if (simulation.isWin()) {
+                wins++;
+            }
+            totalScore += simulation.getScore();
+            totalTicks += simulation.getTickCount();
+        }
+
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        System.out.println("Level " + level + " (" + mode + "): " + rounds + " rounds in " + String.format("%.2f", seconds) + "s ("
+                + String.format("%.0f", rounds / seconds) + " rounds/s)");
+        System.out.println("Wins: " + wins + " | Avg score: " + String.format("%.2f", (double) totalScore / rounds)
+                + " | Avg ticks: " + totalTicks / rounds);
+    }
+
+    // Play one round with a simple bot that keeps the paddle under the ball
+    public static GameSimulation runRound(int level, GameSimulation.CollisionMode mode, int ballSpeed) {
+        return runRound(level, mode, ballSpeed, Bots.followBall());
+    }
+
+    public static GameSimulation runRound(int level, GameSimulation.CollisionMode mode, int ballSpeed, PaddleController bot) {
+        GameSimulation simulation = new GameSimulation(level);
+        simulation.setCollisionMode(mode);
+        if (ballSpeed > 0) {
+            simulation.setBallSpeed(ballSpeed);
+        }
+        play(simulation, bot);
+        return simulation;
+    }
+
+    // Let the bot play the round to the end (or MAX_TICKS_PER_ROUND)
+    public static void play(GameSimulation simulation, PaddleController bot) {
+        simulation.setController(bot);
+        GameInput input = new GameInput();
+        input.launch();
+        while (!simulation.isFinished() && simulation.getTickCount() < MAX_TICKS_PER_ROUND) {
+            simulation.tick(input);
+        }
+    }
+
+    // Bot input for the next tick: move the paddle towards the ball
+    static void followBall(GameSimulation simulation, GameInput input) {
+        int ballCenter = simulation.getBall().x + simulation.getBall().width / 2;
+        int paddleCenter = simulation.getPaddle().x + simulation.getPaddle().width / 2;
+        if (ballCenter < paddleCenter - GameSimulation.PADDLE_STEP) {
+            input.moveLeft();
+        } else if (ballCenter > paddleCenter + GameSimulation.PADDLE_STEP) {
+            input.moveRight();
+        }
+    }
+}
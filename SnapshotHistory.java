@@ -0,0 +1,52 @@
+// The last few seconds of a round as a ring of snapshots, for rewinding in
+// practice mode. The snapshots are allocated up front and refilled in place,
+// so recording one every tick creates no garbage once their arrays have grown
+// to the map's size.
+public class SnapshotHistory {
+    private final GameSnapshot[] ring;
+    private int newest = -1;
+    private int size;
+
+    public SnapshotHistory(int capacity) {
+        ring = new GameSnapshot[capacity];
+        for (int i = 0; i < capacity; i++) {
+            ring[i] = new GameSnapshot();
+        }
+    }
+
+    // Save the simulation's state as the newest entry, overwriting the oldest
+    // when full. Nothing is recorded if no tick has run since the last call.
+    public GameSnapshot record(GameSimulation simulation) {
+        if (size > 0 && ring[newest].getTickCount() == simulation.getTickCount()) {
+            return ring[newest];
+        }
+        newest = (newest + 1) % ring.length;
+        size = Math.min(size + 1, ring.length);
+        simulation.save(ring[newest]);
+        return ring[newest];
+    }
+
+    // The newest snapshot at least ticks older than the newest one, or the
+    // oldest one kept. Everything after it is dropped, so rewinding again
+    // goes further back. Returns null if nothing has been recorded.
+    public GameSnapshot rewind(long ticks) {
+        if (size == 0) {
+            return null;
+        }
+        long target = ring[newest].getTickCount() - ticks;
+        while (size > 1 && ring[newest].getTickCount() > target) {
+            newest = (newest - 1 + ring.length) % ring.length;
+            size--;
+        }
+        return ring[newest];
+    }
+
+    public void clear() {
+        newest = -1;
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,133 @@
+import java.io.File;
+import java.io.IOException;
+
+// Background writer for save files. submit() only copies the snapshot; this
+// thread writes the newest one it has been given, so a slow disk means some
+// intermediate saves are skipped, never that the game waits.
+public class SnapshotWriter implements AutoCloseable {
+    private static SnapshotWriter shared;
+
+    private final Thread thread;
+    private final Object lock = new Object();
+    private GameSnapshot pending = new GameSnapshot();
+    private GameSnapshot writing = new GameSnapshot();
+    private File pendingFile;   // Where pending goes, null if nothing is waiting
+    private File deleteFile;    // Save to remove, e.g. because its round is over
+    private boolean closed;
+
+    public SnapshotWriter() {
+        thread = new Thread(this::run, "snapshot-writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // The process-wide writer, written out and stopped when the JVM exits
+    public static synchronized SnapshotWriter shared() {
+        if (shared == null) {
+            shared = new SnapshotWriter();
+            Runtime.getRuntime().addShutdownHook(new Thread(shared::close, "snapshot-writer-shutdown"));
+        }
+        return shared;
+    }
+
+    // Replaces anything still waiting to be written to the same file
+    public void submit(GameSnapshot snapshot, File file) {
+        synchronized (lock) {
+            awaitOtherFile(file);
+            if (closed) {
+                return; // Shutting down; the last save that made it in is written
+            }
+            pending.copyFrom(snapshot);
+            pendingFile = file;
+            if (file.equals(deleteFile)) {
+                deleteFile = null;
+            }
+            lock.notifyAll();
+        }
+    }
+
+    // Remove a save, after anything already being written to it
+    public void delete(File file) {
+        synchronized (lock) {
+            awaitOtherFile(file);
+            if (closed) {
+                return;
+            }
+            if (file.equals(pendingFile)) {
+                pendingFile = null;
+            }
+            deleteFile = file;
+            lock.notifyAll();
+        }
+    }
+
+    // Wait until a save or delete of another file has been taken by the
+    // thread, so one game's save never replaces another's. Only happens
+    // when a new round starts right after the last one, so it is short.
+    private void awaitOtherFile(File file) {
+        try {
+            while (!closed && (pendingFile != null && !pendingFile.equals(file)
+                    || deleteFile != null && !deleteFile.equals(file))) {
+                lock.wait();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Write out whatever is still waiting and stop the thread
+    @Override
+    public void close() {
+        synchronized (lock) {
+            closed = true;
+            lock.notifyAll();
+        }
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        while (true) {
+            File file, delete;
+            synchronized (lock) {
+                try {
+                    while (pendingFile == null && deleteFile == null && !closed) {
+                        lock.wait();
+                    }
+                } catch (InterruptedException e) {
+                    closed = true; // Treat an interrupt like close: drain and stop
+                }
+                if (pendingFile == null && deleteFile == null) {
+                    break; // Closed and drained
+                }
+                // Swap buffers so submit() can fill the other one while this one is written
+                GameSnapshot snapshot = pending;
+                pending = writing;
+                writing = snapshot;
+                file = pendingFile;
+                delete = deleteFile;
+                pendingFile = null;
+                deleteFile = null;
+                lock.notifyAll(); // Wake submit() or delete() waiting for another file
+            }
+
+            if (delete != null && !delete.delete() && delete.exists()) {
+                System.err.println("Could not delete save: " + delete);
+            }
+            if (file != null) {
+                try {
+                    File directory = file.getAbsoluteFile().getParentFile();
+                    if (directory != null) {
+                        directory.mkdirs();
+                    }
+                    writing.write(file);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,149 @@
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Cold start. The launcher window goes up first, showing a placeholder
+// until logo.png is decoded. Once it has painted, everything the first round
+// needs is warmed up on a background thread while the player is still in the
+// menus: the level pack, score files, JMX histograms, game and UI classes,
+// balloon sprites and the physics hot paths.
+//
+// -Dbounce.startupLog=true prints when each milestone is reached, counted
+// from JVM start: first frame, assets decoded, warm-up done, first game frame.
+// -Dbounce.training=true is the AppCDS training run (see the cds profile in
+// pom.xml): it warms up, builds the game screens once and exits.
+public class Startup {
+    private static final boolean LOG = Boolean.getBoolean("bounce.startupLog");
+    private static final boolean TRAINING = Boolean.getBoolean("bounce.training");
+    private static final int WARM_UP_TICKS = 5_000; // Enough for the JIT to compile the physics
+
+    private static final Set<String> reached = ConcurrentHashMap.newKeySet();
+    private static CompletableFuture<Void> warmUp;
+    private static Scoreboard scoreboard; // Kept open so the game reuses its loaded score files
+
+    public static void launch() {
+        if (TRAINING && GraphicsEnvironment.isHeadless()) {
+            // No screen to show: the archive still gets everything but Swing
+            warmUp().join();
+            System.exit(0);
+        }
+        ImageAssets.load("/logo.png");
+        ImageAssets.load("/enter.png").thenRun(() -> milestone("assets decoded"));
+        SwingUtilities.invokeLater(GameLauncher::new);
+    }
+
+    // Record a milestone; only the first time each one is reached counts
+    public static void milestone(String name) {
+        if (LOG && reached.add(name)) {
+            long millis = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+            System.out.println("startup: " + name + " after " + millis + "ms");
+        }
+    }
+
+    // Called by the launcher's first paint: only now start competing with it for the CPU
+    public static void firstFrame(GameLauncher launcher) {
+        if (!reached.add("first frame painted")) {
+            return;
+        }
+        milestone("first frame");
+        CompletableFuture<Void> done = warmUp();
+        if (TRAINING) {
+            done.thenRun(() -> SwingUtilities.invokeLater(() -> train(launcher)));
+        }
+    }
+
+    // Start the warm-up if it isn't running yet
+    public static synchronized CompletableFuture<Void> warmUp() {
+        if (warmUp == null) {
+            warmUp = new CompletableFuture<>();
+            Thread thread = new Thread(() -> {
+                try {
+                    runWarmUp();
+                    milestone("warm-up done");
+                } catch (Exception e) {
+                    e.printStackTrace(); // Warming up is only an optimisation
+                }
+                warmUp.complete(null);
+            }, "warm-up");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            thread.start();
+        }
+        return warmUp;
+    }
+
+    private static void runWarmUp() throws Exception {
+        int level = firstLevel();
+        if (!TRAINING) {
+            getScoreboard().readScores(level); // Opens the score files and starts their writer
+            getScoreboard().getPlayerCount(level); // Builds the level's rankings for the end-of-round rank
+        }
+        GameMetrics.register();
+
+        // Load and initialise the screens' classes off the event thread
+        for (String name : new String[]{"LoginScreen", "LevelList", "GamePlay", "GameLoop", "ScoreTableModel"}) {
+            Class.forName(name);
+        }
+
+        // Run the physics in both collision modes and draw the map once, which
+        // renders the balloon sprites and the map layer
+        BufferedImage frame = BalloonSprites.createImage(GameSimulation.SCREEN_WIDTH, GameSimulation.SCREEN_HEIGHT, Transparency.OPAQUE);
+        Graphics2D g = frame.createGraphics();
+        try {
+            for (GameSimulation.CollisionMode mode : GameSimulation.CollisionMode.values()) {
+                GameSimulation simulation = new GameSimulation(level);
+                simulation.setCollisionMode(mode);
+                GameInput input = new GameInput();
+                input.launch();
+                for (int tick = 0; tick < WARM_UP_TICKS && !simulation.isFinished(); tick++) {
+                    SimulationRunner.followBall(simulation, input);
+                    simulation.tick(input);
+                }
+                simulation.getMapGenerator().draw(g);
+            }
+            ParticleSystem particles = new ParticleSystem(256);
+            particles.burst(100, 100, Color.YELLOW, 256, 100f);
+            particles.update(GameSimulation.TICK_NANOS);
+            particles.draw(g);
+        } finally {
+            g.dispose();
+        }
+    }
+
+    // Build the screens once so their Swing classes end up in the archive.
+    // The training round's Scoreboard uses a throwaway directory.
+    private static void train(GameLauncher launcher) {
+        try {
+            File directory = Files.createTempDirectory("bounce-training").toFile();
+            directory.deleteOnExit();
+            JFrame frame = new JFrame();
+            frame.add(new LoginScreen(launcher));
+            frame.add(new GamePlay("training", new Scoreboard(directory), firstLevel()));
+            frame.pack();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        System.exit(0);
+    }
+
+    // The first grid level in the pack
+    private static int firstLevel() {
+        int level = LevelPack.getDefault().nextLevel(Integer.MIN_VALUE);
+        return level >= 0 ? level : 1;
+    }
+
+    // The Scoreboard opened by the warm-up, or a new one if it hasn't got that far
+    public static synchronized Scoreboard getScoreboard() {
+        if (scoreboard == null) {
+            scoreboard = new Scoreboard();
+        }
+        return scoreboard;
+    }
+}
@@ -0,0 +1,82 @@
+// Swept box tests for the ball. Instead of checking for overlap after a move,
+// these find the fraction of the move (0..1) at which the ball first touches
+// a box, so a fast ball can't pass through the paddle or a balloon between
+// two ticks.
+public class SweptCollision {
+    public static final int NONE = 0;
+    public static final int WALL = 1;
+    public static final int PADDLE = 2;
+    public static final int BALLOON = 3;
+
+    // Earliest contact found so far during one sweep. Reused every tick so
+    // the sweep doesn't allocate.
+    public static class Hit {
+        double time;
+        boolean xAxis; // Contact normal is horizontal (side hit) rather than vertical
+        int kind;
+        int balloon;
+
+        void reset(double maxTime) {
+            time = maxTime;
+            xAxis = false;
+            kind = NONE;
+            balloon = -1;
+        }
+
+        // Keep the contact if it is earlier than the current one. Ties go to the
+        // lower balloon id so results match the old list order.
+        void offer(double t, boolean onXAxis, int hitKind, int balloonId) {
+            if (t < time || (t == time && hitKind == BALLOON && kind == BALLOON && balloonId < balloon)) {
+                time = t;
+                xAxis = onXAxis;
+                kind = hitKind;
+                balloon = balloonId;
+            }
+        }
+    }
+
+    // Test a box at (x, y) moving by (dx, dy) against a static box. A box that
+    // already overlaps at the start counts as a vertical hit at time 0, which
+    // is what the old overlap test did.
+    public static void sweep(double x, double y, int width, int height, double dx, double dy,
+                             int bx, int by, int bw, int bh, int kind, int balloonId, Hit hit) {
+        double entryX, exitX, entryY, exitY;
+
+        if (dx > 0) {
+            entryX = (bx - (x + width)) / dx;
+            exitX = (bx + bw - x) / dx;
+        } else if (dx < 0) {
+            entryX = (bx + bw - x) / dx;
+            exitX = (bx - (x + width)) / dx;
+        } else if (x < bx + bw && bx < x + width) {
+            entryX = Double.NEGATIVE_INFINITY;
+            exitX = Double.POSITIVE_INFINITY;
+        } else {
+            return; // Not moving horizontally and not lined up
+        }
+
+        if (dy > 0) {
+            entryY = (by - (y + height)) / dy;
+            exitY = (by + bh - y) / dy;
+        } else if (dy < 0) {
+            entryY = (by + bh - y) / dy;
+            exitY = (by - (y + height)) / dy;
+        } else if (y < by + bh && by < y + height) {
+            entryY = Double.NEGATIVE_INFINITY;
+            exitY = Double.POSITIVE_INFINITY;
+        } else {
+            return;
+        }
+
+        double entry = Math.max(entryX, entryY);
+        double exit = Math.min(exitX, exitY);
+        if (entry >= exit || entry > 1 || exit <= 0) {
+            return; // Never overlaps during this move
+        }
+        if (entry < 0) {
+            hit.offer(0, false, kind, balloonId); // Already overlapping
+        } else {
+            hit.offer(entry, entryX > entryY, kind, balloonId);
+        }
+    }
+}
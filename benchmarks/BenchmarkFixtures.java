@@ -0,0 +1,198 @@
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.IntSupplier;
+
+// Workloads for the JMH benchmarks in bench/. JMH refuses benchmark classes in
+// the default package and packaged code cannot see the game classes, so the
+// benchmarks look these factories up once by reflection and then only call
+// the returned IntSupplier (a monomorphic call the JIT inlines).
+public class BenchmarkFixtures {
+    private static final Map<File, List<Runnable>> closers = new HashMap<>(); // See close()
+
+    // One GamePlay.moveBall step; the paddle is kept under the ball so the round never ends
+    public static IntSupplier moveBall(int level) {
+        GameSimulation simulation = launchedSimulation(level);
+        Rectangle ball = simulation.getBall();
+        Rectangle paddle = simulation.getPaddle();
+        return () -> {
+            paddle.x = ball.x + ball.width / 2 - paddle.width / 2;
+            simulation.moveBall();
+            return ball.y;
+        };
+    }
+
+    // One swept-collision tick at the given ball speed, with the paddle kept under the ball
+    public static IntSupplier sweepBall(int level, int ballSpeed) {
+        GameSimulation[] simulation = {sweptSimulation(level, ballSpeed)};
+        return () -> {
+            if (simulation[0].isFinished()) {
+                simulation[0] = sweptSimulation(level, ballSpeed);
+            }
+            Rectangle ball = simulation[0].getBall();
+            Rectangle paddle = simulation[0].getPaddle();
+            paddle.x = ball.x + ball.width / 2 - paddle.width / 2;
+            simulation[0].sweepBall();
+            return ball.y;
+        };
+    }
+
+    // One checkBalloonCollision step on a level map with the ball at varying spots,
+    // restarting the level once it is cleared
+    public static IntSupplier checkBalloonCollision(int level) {
+        Random random = new Random(42);
+        int[] probeX = new int[1024];
+        int[] probeY = new int[1024];
+        for (int i = 0; i < probeX.length; i++) {
+            probeX[i] = random.nextInt(580);
+            probeY[i] = random.nextInt(400);
+        }
+        GameSimulation[] simulation = {launchedSimulation(level)};
+        int[] probe = {0};
+        return () -> {
+            if (simulation[0].isFinished()) {
+                simulation[0] = launchedSimulation(level);
+            }
+            int i = probe[0]++ & (probeX.length - 1);
+            simulation[0].getBall().setLocation(probeX[i], probeY[i]);
+            simulation[0].checkBalloonCollision();
+            return simulation[0].getScore();
+        };
+    }
+
+    // Grid lookup for a ball-sized box on a custom map with the given number of balloons
+    public static IntSupplier findCollision(int balloons) {
+        Random random = new Random(42);
+        MapGenerator map = randomMap(balloons, random);
+        int[] probeX = new int[1024];
+        int[] probeY = new int[1024];
+        for (int i = 0; i < probeX.length; i++) {
+            probeX[i] = random.nextInt(580);
+            probeY[i] = random.nextInt(580);
+        }
+        int[] probe = {0};
+        return () -> {
+            int i = probe[0]++ & (probeX.length - 1);
+            return map.findCollision(probeX[i], probeY[i], 20, 20);
+        };
+    }
+
+    // MapGenerator.draw (cached layer blit) into an offscreen 600x600 image
+    public static IntSupplier drawMap(int balloons) {
+        MapGenerator map = balloons == 35 ? new MapGenerator(5, 7) : randomMap(balloons, new Random(42));
+        BufferedImage image = new BufferedImage(GameSimulation.SCREEN_WIDTH, GameSimulation.SCREEN_HEIGHT,
+                BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        return () -> {
+            map.draw(g);
+            return image.getRGB(300, 300);
+        };
+    }
+
+    // Drawing every balloon sprite, i.e. the cost of rebuilding the cached map layer
+    public static IntSupplier drawSprites(int balloons) {
+        MapGenerator map = balloons == 35 ? new MapGenerator(5, 7) : randomMap(balloons, new Random(42));
+        BufferedImage image = new BufferedImage(GameSimulation.SCREEN_WIDTH, GameSimulation.SCREEN_HEIGHT,
+                BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        return () -> {
+            map.drawBalloons(g, 0, 0, image.getWidth(), image.getHeight());
+            return image.getRGB(300, 300);
+        };
+    }
+
+    // Scoreboard.readScores for a level with the given number of rows, i.e.
+    // a hit in the in-memory leaderboard. Also writes the level's score file
+    // for the cold-path workloads below. Release with close(directory).
+    public static IntSupplier readScores(File directory, int rows) throws IOException {
+        Random random = new Random(42);
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(new File(directory, "scoreboard_level_1.txt")))) {
+            for (int i = 0; i < rows; i++) {
+                writer.write("player" + random.nextInt(500) + "," + random.nextInt(71) + "," + random.nextInt(120));
+                writer.newLine();
+            }
+        }
+        Scoreboard scoreboard = new Scoreboard(directory);
+        scoreboard.readScores(1); // First open imports the text file into the binary store
+        scoreboard.flush();
+        closers.computeIfAbsent(directory, d -> new ArrayList<>()).add(scoreboard::close);
+        return () -> scoreboard.readScores(1).size();
+    }
+
+    // Loading a level's leaderboard cold: a fresh ScoreStore opens the score
+    // file and its top-K index and reads the best scores, every call
+    public static IntSupplier openLeaderboard(File directory) {
+        return () -> {
+            ScoreStore store = new ScoreStore(directory);
+            try {
+                return store.top(1).size();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                store.close();
+            }
+        };
+    }
+
+    // Rankings.load: building a level's per-player rankings from its whole history
+    public static IntSupplier loadRankings(File directory) {
+        ScoreStore store = new ScoreStore(directory);
+        closers.computeIfAbsent(directory, d -> new ArrayList<>()).add(store::close);
+        return () -> {
+            Rankings rankings = new Rankings();
+            try {
+                rankings.load(1, store);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return rankings.playerCount(1);
+        };
+    }
+
+    // Close what the workloads above opened on the directory, before its files are deleted
+    public static void close(File directory) {
+        List<Runnable> opened = closers.remove(directory);
+        if (opened != null) {
+            opened.forEach(Runnable::run);
+        }
+    }
+
+    public static File createTempDirectory() throws IOException {
+        return Files.createTempDirectory("bounce-bench").toFile();
+    }
+
+    private static GameSimulation launchedSimulation(int level) {
+        GameSimulation simulation = new GameSimulation(level);
+        GameInput input = new GameInput();
+        input.launch();
+        simulation.tick(input);
+        return simulation;
+    }
+
+    private static GameSimulation sweptSimulation(int level, int ballSpeed) {
+        GameSimulation simulation = launchedSimulation(level);
+        simulation.setCollisionMode(GameSimulation.CollisionMode.SWEPT);
+        simulation.setBallSpeed(ballSpeed);
+        return simulation;
+    }
+
+    private static MapGenerator randomMap(int balloons, Random random) {
+        MapGenerator map = new MapGenerator();
+        for (int i = 0; i < balloons; i++) {
+            map.addBalloon(random.nextInt(570), random.nextInt(560), Color.YELLOW);
+        }
+        return map;
+    }
+}
@@ -0,0 +1,30 @@
+package bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+// Balloon lookup for one ball position on maps of increasing size.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class CollisionBenchmark {
+    @Param({"35", "2000", "10000"})
+    public int balloons;
+
+    private IntSupplier findCollision;
+
+    @Setup
+    public void setUp() {
+        findCollision = Fixtures.load("findCollision", new Class<?>[]{int.class}, balloons);
+    }
+
+    @Benchmark
+    public int findCollision() {
+        return findCollision.getAsInt();
+    }
+}
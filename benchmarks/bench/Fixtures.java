@@ -0,0 +1,24 @@
+package bench;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.function.IntSupplier;
+
+// Looks up a workload from the default-package BenchmarkFixtures class.
+final class Fixtures {
+    private Fixtures() {
+    }
+
+    static IntSupplier load(String name, Class<?>[] parameterTypes, Object... args) {
+        return (IntSupplier) call(name, parameterTypes, args);
+    }
+
+    static Object call(String name, Class<?>[] parameterTypes, Object... args) {
+        try {
+            return Class.forName("BenchmarkFixtures").getMethod(name, parameterTypes).invoke(null, args);
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException("Fixture " + name + " failed", e.getCause());
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Fixture " + name + " not found", e);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+// Per-tick cost of GameSimulation.moveBall, checkBalloonCollision and the swept sweepBall.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class PhysicsBenchmark {
+    @Param({"1", "3"})
+    public int level;
+
+    private IntSupplier moveBall;
+    private IntSupplier checkBalloonCollision;
+    private IntSupplier sweepBall;
+
+    @Setup
+    public void setUp() {
+        moveBall = Fixtures.load("moveBall", new Class<?>[]{int.class}, level);
+        checkBalloonCollision = Fixtures.load("checkBalloonCollision", new Class<?>[]{int.class}, level);
+        sweepBall = Fixtures.load("sweepBall", new Class<?>[]{int.class, int.class}, level, 30);
+    }
+
+    @Benchmark
+    public int moveBall() {
+        return moveBall.getAsInt();
+    }
+
+    @Benchmark
+    public int checkBalloonCollision() {
+        return checkBalloonCollision.getAsInt();
+    }
+
+    @Benchmark
+    public int sweepBall() {
+        return sweepBall.getAsInt();
+    }
+}
@@ -0,0 +1,38 @@
+package bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+// Cost of MapGenerator.draw (cached layer) and of drawing every balloon sprite,
+// into an offscreen BufferedImage (no display needed).
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class RenderBenchmark {
+    @Param({"35", "2000"})
+    public int balloons;
+
+    private IntSupplier drawMap;
+    private IntSupplier drawSprites;
+
+    @Setup
+    public void setUp() {
+        drawMap = Fixtures.load("drawMap", new Class<?>[]{int.class}, balloons);
+        drawSprites = Fixtures.load("drawSprites", new Class<?>[]{int.class}, balloons);
+    }
+
+    @Benchmark
+    public int drawMap() {
+        return drawMap.getAsInt();
+    }
+
+    @Benchmark
+    public int drawSprites() {
+        return drawSprites.getAsInt();
+    }
+}
@@ -0,0 +1,61 @@
+package bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+// Cost of reading a level's leaderboard from a large score history: from the
+// in-memory cache, cold from the score file and its index, and building the
+// per-player rankings from every record.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class ScoreboardBenchmark {
+    @Param({"1000", "100000"})
+    public int rows;
+
+    private File directory;
+    private IntSupplier readScores;
+    private IntSupplier openLeaderboard;
+    private IntSupplier loadRankings;
+
+    @Setup
+    public void setUp() {
+        directory = (File) Fixtures.call("createTempDirectory", new Class<?>[0]);
+        readScores = Fixtures.load("readScores", new Class<?>[]{File.class, int.class}, directory, rows);
+        openLeaderboard = Fixtures.load("openLeaderboard", new Class<?>[]{File.class}, directory);
+        loadRankings = Fixtures.load("loadRankings", new Class<?>[]{File.class}, directory);
+    }
+
+    @TearDown
+    public void tearDown() {
+        Fixtures.call("close", new Class<?>[]{File.class}, directory); // Release the files before deleting them
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Benchmark
+    public int readScores() {
+        return readScores.getAsInt();
+    }
+
+    @Benchmark
+    public int openLeaderboard() {
+        return openLeaderboard.getAsInt();
+    }
+
+    @Benchmark
+    public int loadRankings() {
+        return loadRankings.getAsInt();
+    }
+}